@@ -0,0 +1,115 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parsing and classification of the OVH price feed, without persistence. The feed is the test fixture scaled by
+ * {@link OvhFeedFixture}: <code>mvn -Pjmh test-compile exec:exec -Djmh.args="OvhCatalog -p scale=1,10"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OvhCatalogBenchmark {
+
+	@Param({ "1", "10", "100" })
+	private int scale;
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private OvhPriceImport resource;
+
+	private OvhPlanClassifier classifier;
+
+	private byte[] feed;
+
+	/**
+	 * Plan attributes of the feed having a plan code, without the regional prices.
+	 */
+	private final List<Map<String, String>> planPrices = new ArrayList<>();
+
+	@Setup
+	public void setup() throws IOException {
+		resource = new OvhPriceImport() {
+			{
+				objectMapper = mapper;
+			}
+		};
+		classifier = OvhPlanClassifier.load(mapper, OvhPlanClassifier.FAMILIES);
+		feed = OvhFeedFixture.scale(mapper, scale);
+		planPrices.clear();
+		for (final var plan : mapper.readValue(feed, new TypeReference<List<Map<String, Object>>>() {
+		})) {
+			final var planPrice = new HashMap<String, String>();
+			plan.forEach((k, v) -> {
+				if (v instanceof String value) {
+					planPrice.put(k, value);
+				}
+			});
+			if (planPrice.get("planCode") != null) {
+				planPrices.add(planPrice);
+			}
+		}
+	}
+
+	/**
+	 * Streaming parse of the whole feed, including the classification and the digest.
+	 */
+	@Benchmark
+	public OvhAllPrices readPrices() throws IOException {
+		return resource.readPrices(new ByteArrayInputStream(feed));
+	}
+
+	/**
+	 * Family and layout resolution of each plan.
+	 */
+	@Benchmark
+	public void classify(final Blackhole blackhole) {
+		for (final var planPrice : planPrices) {
+			final var family = classifier.classify(planPrice.get("planCode"));
+			blackhole.consume(family == null ? null : family.getLayout(planPrice));
+		}
+	}
+
+	/**
+	 * Specifications of each supported plan: CPU, RAM and unit price parsing.
+	 */
+	@Benchmark
+	public void newPlan(final Blackhole blackhole) {
+		for (final var planPrice : planPrices) {
+			final var family = classifier.classify(planPrice.get("planCode"));
+			final var layout = family == null ? null : family.getLayout(planPrice);
+			final var price = OvhPlanLayout.get(planPrice, layout == null ? -1 : layout.getPrice());
+			if (price != null && !price.contains("Included")) {
+				blackhole.consume(resource.newPlan(planPrice.get("planCode"), family.getCategory(), layout, planPrice));
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Price feed built from the test fixture and scaled by replicating its instance and database plans with a renamed
+ * flavor. The other plans are kept once, so the amount of regional prices is nearly multiplied by the scale.
+ */
+final class OvhFeedFixture {
+
+	/**
+	 * Test fixture price feed.
+	 */
+	static final String FIXTURE = "mock-server/ovh/prices.json";
+
+	private OvhFeedFixture() {
+		// Factory
+	}
+
+	/**
+	 * Return the fixture price feed scaled by the given factor.
+	 *
+	 * @param mapper The JSON mapper.
+	 * @param scale  The scale factor, <code>1</code> for the fixture itself.
+	 * @return The JSON price feed.
+	 * @throws IOException When the fixture cannot be read.
+	 */
+	static byte[] scale(final ObjectMapper mapper, final int scale) throws IOException {
+		final var classifier = OvhPlanClassifier.load(mapper, OvhPlanClassifier.FAMILIES);
+		final List<Map<String, Object>> plans;
+		try (var input = new ClassPathResource(FIXTURE).getInputStream()) {
+			plans = mapper.readValue(input, new TypeReference<>() {
+			});
+		}
+		final var result = new ArrayList<Map<String, Object>>(plans.size() * scale);
+		result.addAll(plans);
+		for (var copy = 1; copy < scale; copy++) {
+			for (final var plan : plans) {
+				final var replica = replicate(classifier, plan, "x" + copy);
+				if (replica != null) {
+					result.add(replica);
+				}
+			}
+		}
+		return mapper.writeValueAsBytes(result);
+	}
+
+	/**
+	 * Return a copy of an instance or database plan with the suffix appended to its flavor, <code>null</code> for the
+	 * other plans.
+	 */
+	private static Map<String, Object> replicate(final OvhPlanClassifier classifier, final Map<String, Object> plan,
+			final String suffix) {
+		final var planCode = (String) plan.get("planCode");
+		final var family = planCode == null ? null : classifier.classify(planCode);
+		if (family == null || family.getCategory() != OvhPlanCategory.INSTANCE
+				&& family.getCategory() != OvhPlanCategory.DATABASE) {
+			return null;
+		}
+
+		// The flavor is the segment following the family prefix: "b2-7.consumption", "databases.mysql-essential-db1-4.hour.consumption"
+		final var end = planCode.indexOf('.', family.getPrefix().length());
+		final var replica = new LinkedHashMap<>(plan);
+		replica.put("planCode", end < 0 ? planCode + suffix : planCode.substring(0, end) + suffix + planCode.substring(end));
+		replica.computeIfPresent("attr-0", (k, v) -> v + suffix);
+		return replica;
+	}
+}
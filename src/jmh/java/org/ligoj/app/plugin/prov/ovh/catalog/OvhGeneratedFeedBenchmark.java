@@ -0,0 +1,66 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Parsing of feeds produced by {@link OvhPriceFeedGenerator}, up to sizes not reached yet by the OVH catalog:
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.args="OvhGeneratedFeed -p regions=50 -p flavors=500"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OvhGeneratedFeedBenchmark {
+
+	@Param({ "8", "50" })
+	private int regions;
+
+	@Param({ "50", "500" })
+	private int flavors;
+
+	private OvhPriceImport resource;
+
+	private byte[] feed;
+
+	@Setup
+	public void setup() throws IOException {
+		final var mapper = new ObjectMapper();
+		resource = new OvhPriceImport() {
+			{
+				objectMapper = mapper;
+			}
+		};
+		final var generator = new OvhPriceFeedGenerator();
+		generator.setRegions(regions);
+		generator.setFlavors(flavors);
+		generator.setDatabaseFlavors(flavors / 10);
+		feed = generator.generate().getBytes(StandardCharsets.UTF_8);
+	}
+
+	@Benchmark
+	public OvhAllPrices readPrices() throws IOException {
+		return resource.readPrices(new ByteArrayInputStream(feed));
+	}
+}
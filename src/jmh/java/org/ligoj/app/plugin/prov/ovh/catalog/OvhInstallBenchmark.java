@@ -0,0 +1,161 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.persistence.EntityManagerFactory;
+
+import org.apache.commons.io.FileUtils;
+import org.ligoj.app.api.SubscriptionMode;
+import org.ligoj.app.model.Node;
+import org.ligoj.app.plugin.prov.catalog.ImportCatalogResource;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Full {@link OvhPriceImport#install(boolean)} merge against the in-memory H2 store of the test Spring context. The
+ * catalog is installed once per trial, then each invocation merges the same scaled feed again with a forced update:
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.args="OvhInstall -p scale=1 -p mode=SERIAL"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OvhInstallBenchmark {
+
+	private static final String NODE = "service:prov:ovh";
+
+	@Param({ "1", "10", "100" })
+	private int scale;
+
+	@Param({ "SERIAL", "PARALLEL", "PIPELINE", "REGION" })
+	private OvhImportMode mode;
+
+	private ClassPathXmlApplicationContext context;
+
+	private TransactionTemplate transaction;
+
+	private OvhPriceImport resource;
+
+	private HttpServer server;
+
+	private Path cacheDir;
+
+	@Setup
+	public void setup() throws IOException {
+		context = new ClassPathXmlApplicationContext("classpath:/META-INF/spring/application-context-test.xml");
+		transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+		// JMH may run the setup and the benchmark in different threads
+		SecurityContextHolder.setStrategyName(SecurityContextHolder.MODE_GLOBAL);
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken("junit", "N/A"));
+		persistNodes();
+
+		// Serve the scaled feed
+		final var feed = OvhFeedFixture.scale(new ObjectMapper(), scale);
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext(OvhPriceImport.OVH_PRICES_PATH, exchange -> {
+			exchange.sendResponseHeaders(200, feed.length);
+			try (var body = exchange.getResponseBody()) {
+				body.write(feed);
+			}
+		});
+		server.start();
+		cacheDir = Files.createTempDirectory("ovh-jmh");
+		final var configuration = context.getBean(ConfigurationResource.class);
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + server.getAddress().getPort());
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cacheDir.toString());
+		configuration.put(OvhPriceImport.CONF_MODE, mode.name());
+
+		final var helper = new ImportCatalogResource();
+		context.getAutowireCapableBeanFactory().autowireBean(helper);
+		resource = new OvhPriceImport();
+		context.getAutowireCapableBeanFactory().autowireBean(resource);
+		resource.setImportCatalogResource(helper);
+
+		// Initial import, the benchmark measures the merge of an existing catalog
+		resetImportTask();
+		install();
+	}
+
+	private void persistNodes() {
+		transaction.executeWithoutResult(s -> {
+			final var em = SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class));
+			final var prov = new Node();
+			prov.setId("service:prov");
+			prov.setName("Provisioning");
+			prov.setMode(SubscriptionMode.LINK);
+			em.persist(prov);
+			final var ovh = new Node();
+			ovh.setId(NODE);
+			ovh.setName("Provisioning OVH");
+			ovh.setMode(SubscriptionMode.LINK);
+			ovh.setRefined(prov);
+			em.persist(ovh);
+		});
+	}
+
+	@Setup(Level.Invocation)
+	public void resetImportTask() {
+		transaction.executeWithoutResult(s -> {
+			resource.getImportCatalogResource().endTask(NODE, false);
+			resource.getImportCatalogResource().startTask(NODE, t -> {
+				t.setLocation(null);
+				t.setNbPrices(0);
+				t.setNbTypes(0);
+				t.setWorkload(0);
+				t.setDone(0);
+				t.setPhase(null);
+			});
+		});
+	}
+
+	@Benchmark
+	public void install() {
+		transaction.executeWithoutResult(s -> {
+			try {
+				resource.install(true);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.stop(0);
+		context.close();
+		FileUtils.deleteDirectory(cacheDir.toFile());
+		SecurityContextHolder.clearContext();
+	}
+}
@@ -0,0 +1,61 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compare {@link OvhNumberParser} with the former regular expression cleaning of the CPU, RAM and cost attributes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OvhNumberParserBenchmark {
+
+	private static final String[] ATTRIBUTES = { "7 GB", "2", "15 GB", "8 vCores", "120 GB", "1", "2 GB" };
+
+	private static final String[] COSTS = { "0.0813", "65.60", "1,120", "0.0123", "0.7433", "357.00" };
+
+	@Benchmark
+	public void attributesRegex(final Blackhole blackhole) {
+		for (final var value : ATTRIBUTES) {
+			blackhole.consume(Double.parseDouble(value.replaceAll("[/a-z A-Z]*", "").replaceAll("\\xA0", "")));
+		}
+	}
+
+	@Benchmark
+	public void attributesParser(final Blackhole blackhole) {
+		for (final var value : ATTRIBUTES) {
+			blackhole.consume(OvhNumberParser.parse(value));
+		}
+	}
+
+	@Benchmark
+	public void costsRegex(final Blackhole blackhole) {
+		for (final var value : COSTS) {
+			blackhole.consume(Double.parseDouble(value.replaceAll("[^0-9.]", "")));
+		}
+	}
+
+	@Benchmark
+	public void costsParser(final Blackhole blackhole) {
+		for (final var value : COSTS) {
+			blackhole.consume(OvhNumberParser.parse(value));
+		}
+	}
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compare the binding of a regional price to {@link OvhPriceColumns} with the former per call setter map on boxed
+ * fields. Run with the GC profiler to compare the allocation rates:
+ * <code>mvn -Pjmh test-compile exec:exec -Djmh.args="OvhPriceKey -prof gc"</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OvhPriceKeyBenchmark {
+
+	private static final String[] KEYS = { "windows.monthly", "windows.hourly", "linux.monthly", "linux.hourly", "monthly",
+			"hourly" };
+
+	/**
+	 * The former boxed price holder.
+	 */
+	private static class BoxedPrice {
+		private Double monthlyCost;
+		private Double hourlyCost;
+		private Double monthlyWindowsCost;
+		private Double hourlyWindowsCost;
+		private Double monthlyLinuxCost;
+		private Double hourlyLinuxCost;
+	}
+
+	private final Map<String, String> regionalPrice = Map.of("linux.monthly", "51.30", "linux.hourly", "0.0813",
+			"windows.monthly", "Included", "windows.hourly", "0.1213");
+
+	private OvhPriceColumns columns;
+
+	@Setup
+	public void setup() {
+		columns = new OvhPriceColumns();
+	}
+
+	@Benchmark
+	public Object setterMap() {
+		final var price = new BoxedPrice();
+		for (final var key : KEYS) {
+			final var value = regionalPrice.get(key);
+			if (value != null && !value.contains("Included")) {
+				final Map<String, Consumer<Double>> setter = Map.of("linux.monthly", v -> price.monthlyLinuxCost = v,
+						"linux.hourly", v -> price.hourlyLinuxCost = v, "windows.monthly", v -> price.monthlyWindowsCost = v,
+						"windows.hourly", v -> price.hourlyWindowsCost = v, "monthly", v -> price.monthlyCost = v, "hourly",
+						v -> price.hourlyCost = v);
+				if (setter.containsKey(key)) {
+					setter.get(key).accept(Double.parseDouble(value.replaceAll("[^0-9.]", "")));
+				}
+			}
+		}
+		return price;
+	}
+
+	@Benchmark
+	public int columns() {
+		if (columns.size() > 1_000_000) {
+			// Bound the retained memory
+			columns = new OvhPriceColumns();
+		}
+		return columns.add(0, 0, regionalPrice);
+	}
+}
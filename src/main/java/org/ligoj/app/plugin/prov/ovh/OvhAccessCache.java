@@ -0,0 +1,192 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Bounded cache of the access validation results. Concurrent lookups of the same key share a single validation. A
+ * valid access is refreshed in the background once most of its time to live is elapsed, a refused access is kept for a
+ * shorter time. The key should include a hash of the credentials, so an edited subscription is validated again.
+ */
+@Slf4j
+public class OvhAccessCache {
+
+	/**
+	 * Default time to live of a valid access.
+	 */
+	public static final long DEFAULT_TTL = TimeUnit.MINUTES.toNanos(5);
+
+	/**
+	 * Default time to live of a refused access.
+	 */
+	public static final long DEFAULT_REFUSED_TTL = TimeUnit.SECONDS.toNanos(30);
+
+	/**
+	 * Default maximal amount of entries.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	/**
+	 * A cached validation, pending or completed.
+	 */
+	private static class Entry {
+
+		private final CompletableFuture<Boolean> result;
+
+		private volatile long expires = Long.MAX_VALUE;
+
+		private volatile long refresh = Long.MAX_VALUE;
+
+		private volatile boolean refreshing;
+
+		private Entry(final CompletableFuture<Boolean> result) {
+			this.result = result;
+		}
+	}
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	private final Executor executor;
+
+	private final LongSupplier clock;
+
+	private final long ttl;
+
+	private final long refusedTtl;
+
+	private final int maxSize;
+
+	/**
+	 * Cache with the default settings.
+	 *
+	 * @param executor The executor of the background refreshes.
+	 */
+	public OvhAccessCache(final Executor executor) {
+		this(executor, System::nanoTime, DEFAULT_TTL, DEFAULT_REFUSED_TTL, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Cache with custom settings.
+	 *
+	 * @param executor   The executor of the background refreshes.
+	 * @param clock      The clock, in nanoseconds.
+	 * @param ttl        The time to live of a valid access, in nanoseconds.
+	 * @param refusedTtl The time to live of a refused access, in nanoseconds.
+	 * @param maxSize    The maximal amount of entries.
+	 */
+	public OvhAccessCache(final Executor executor, final LongSupplier clock, final long ttl, final long refusedTtl, final int maxSize) {
+		this.executor = executor;
+		this.clock = clock;
+		this.ttl = ttl;
+		this.refusedTtl = refusedTtl;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Return the cached validation result, validating the access as needed.
+	 *
+	 * @param key       The cache key: the subscription and a hash of its credentials.
+	 * @param validator The access validation.
+	 * @return The validation result.
+	 */
+	public boolean get(final String key, final BooleanSupplier validator) {
+		final var now = clock.getAsLong();
+		final var owner = new Entry[1];
+		final var entry = entries.compute(key, (k, previous) -> {
+			if (previous != null && (!previous.result.isDone() || now < previous.expires)) {
+				// Pending or still valid validation
+				return previous;
+			}
+			owner[0] = new Entry(new CompletableFuture<>());
+			return owner[0];
+		});
+		if (owner[0] != null) {
+			// This thread validates the access, the concurrent lookups wait for it
+			evictAsNeeded(now);
+			complete(key, entry, validator);
+		} else if (now >= entry.refresh && !entry.refreshing) {
+			refresh(key, entry, validator);
+		}
+		try {
+			return entry.result.join();
+		} catch (final CompletionException e) {
+			throw e.getCause() instanceof RuntimeException re ? re : e;
+		}
+	}
+
+	private void complete(final String key, final Entry entry, final BooleanSupplier validator) {
+		try {
+			final var valid = validator.getAsBoolean();
+			schedule(entry, valid);
+			entry.result.complete(valid);
+		} catch (final RuntimeException e) {
+			// Failures are not cached
+			entries.remove(key, entry);
+			entry.result.completeExceptionally(e);
+		}
+	}
+
+	private void schedule(final Entry entry, final boolean valid) {
+		final var now = clock.getAsLong();
+		if (valid) {
+			entry.expires = now + ttl;
+			entry.refresh = now + ttl * 4 / 5;
+		} else {
+			entry.expires = now + refusedTtl;
+		}
+	}
+
+	/**
+	 * Validate again a valid access in the background. The current result is served until the new one is available.
+	 */
+	private void refresh(final String key, final Entry entry, final BooleanSupplier validator) {
+		entry.refreshing = true;
+		try {
+			executor.execute(() -> {
+				try {
+					final var next = new Entry(CompletableFuture.completedFuture(validator.getAsBoolean()));
+					schedule(next, next.result.join());
+					entries.replace(key, entry, next);
+				} catch (final RuntimeException e) {
+					// The current result expires as planned
+					log.info("Unable to refresh the OVH access {}: {}", key, e.getMessage());
+				}
+			});
+		} catch (final RuntimeException e) {
+			// Rejected refresh, the current result expires as planned
+			log.info("Unable to schedule the OVH access refresh {}: {}", key, e.getMessage());
+		}
+	}
+
+	/**
+	 * Remove the expired entries when the cache is full, then all of them when still full.
+	 */
+	private void evictAsNeeded(final long now) {
+		if (entries.size() > maxSize) {
+			entries.values().removeIf(e -> e.result.isDone() && now >= e.expires);
+			if (entries.size() > maxSize) {
+				entries.values().removeIf(e -> e.result.isDone());
+			}
+		}
+	}
+
+	/**
+	 * Return the amount of cached entries.
+	 *
+	 * @return The amount of cached entries.
+	 */
+	public int size() {
+		return entries.size();
+	}
+}
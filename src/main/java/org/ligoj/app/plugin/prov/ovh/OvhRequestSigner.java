@@ -0,0 +1,85 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Signer of the OVH API requests for a set of credentials. The constant part of the signature payload and the constant
+ * headers are computed once, only the timestamp and the signature change for each request. Thread safe.
+ */
+public class OvhRequestSigner {
+
+	/**
+	 * SHA-1 digest of each thread, reset after each use.
+	 */
+	private static final ThreadLocal<MessageDigest> SHA1 = ThreadLocal.withInitial(DigestUtils::getSha1Digest);
+
+	private static final byte SEPARATOR = '+';
+
+	/**
+	 * Signature payload prefix: "{secret}+{consumer}+".
+	 */
+	private final byte[] prefix;
+
+	/**
+	 * Headers shared by all the requests.
+	 */
+	private final Map<String, String> headers;
+
+	/**
+	 * Signer of the given credentials.
+	 *
+	 * @param appKey      The application key.
+	 * @param appSecret   The application secret.
+	 * @param consumerKey The consumer key.
+	 */
+	public OvhRequestSigner(final String appKey, final String appSecret, final String consumerKey) {
+		this.prefix = (appSecret + "+" + consumerKey + "+").getBytes(StandardCharsets.UTF_8);
+		this.headers = Map.of("Content-Type", "application/json", "X-Ovh-Application", appKey, "X-Ovh-Consumer", consumerKey);
+	}
+
+	/**
+	 * Return the signature of a request.
+	 *
+	 * @param method    The HTTP method.
+	 * @param url       The full URL.
+	 * @param body      The request body, may be empty.
+	 * @param timestamp The request timestamp, in seconds.
+	 * @return The signature: "$1$" followed by the hexadecimal SHA-1 of the payload.
+	 */
+	public String sign(final String method, final String url, final String body, final long timestamp) {
+		final var digest = SHA1.get();
+		digest.update(prefix);
+		digest.update(method.getBytes(StandardCharsets.UTF_8));
+		digest.update(SEPARATOR);
+		digest.update(url.getBytes(StandardCharsets.UTF_8));
+		digest.update(SEPARATOR);
+		digest.update(body.getBytes(StandardCharsets.UTF_8));
+		digest.update(SEPARATOR);
+		digest.update(Long.toString(timestamp).getBytes(StandardCharsets.UTF_8));
+		return "$1$" + Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Add the authentication headers of a request to the given headers.
+	 *
+	 * @param target    The headers to complete.
+	 * @param method    The HTTP method.
+	 * @param url       The full URL.
+	 * @param body      The request body, may be empty.
+	 * @param timestamp The request timestamp, in seconds.
+	 */
+	public void addHeaders(final Map<String, String> target, final String method, final String url, final String body,
+			final long timestamp) {
+		target.putAll(headers);
+		target.put("X-Ovh-Signature", sign(method, url, body, timestamp));
+		target.put("X-Ovh-Timestamp", Long.toString(timestamp));
+	}
+}
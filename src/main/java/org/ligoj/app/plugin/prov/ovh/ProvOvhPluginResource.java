@@ -5,9 +5,21 @@
 package org.ligoj.app.plugin.prov.ovh;
 
 import java.io.IOException;
+import java.net.URI;
 import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.core.MediaType;
@@ -18,18 +30,20 @@ import org.ligoj.app.plugin.prov.AbstractProvResource;
 import org.ligoj.app.plugin.prov.ProvResource;
 import org.ligoj.app.plugin.prov.catalog.ImportCatalogService;
 import org.ligoj.app.plugin.prov.ovh.catalog.OvhPriceImport;
-import org.ligoj.bootstrap.core.curl.CurlProcessor;
 import org.ligoj.bootstrap.core.curl.CurlRequest;
 import org.ligoj.bootstrap.core.resource.BusinessException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * The provisioning service for OVH. There is complete quote configuration along the subscription.
  */
 @Service
 @Path(ProvOvhPluginResource.URL)
 @Produces(MediaType.APPLICATION_JSON)
+@Slf4j
 public class ProvOvhPluginResource extends AbstractProvResource implements ImportCatalogService {
 
 	/**
@@ -91,9 +105,44 @@ public class ProvOvhPluginResource extends AbstractProvResource implements Impor
 	 */
 	public static final String CONF_OS = ProvOvhPluginResource.KEY + ":os";
 
+	/**
+	 * Maximal amount of cached request signers.
+	 */
+	private static final int MAX_SIGNERS = 1000;
+
+	/**
+	 * Timeout of the connection and of the response of an API call.
+	 */
+	private static final Duration API_TIMEOUT = Duration.ofSeconds(20);
+
 	@Autowired
 	protected OvhPriceImport priceImport;
 
+	/**
+	 * Request signers by credentials.
+	 */
+	private final Map<String, OvhRequestSigner> signers = new ConcurrentHashMap<>();
+
+	/**
+	 * HTTP client shared by the API calls. It has no cookie handler, so no state is shared between the subscriptions.
+	 */
+	private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(API_TIMEOUT).build();
+
+	/**
+	 * Background refresh of the cached access validations. The thread is only started for a refresh and stops once
+	 * idle, so an instance not closed retains no thread.
+	 */
+	private final ExecutorService refresher = new ThreadPoolExecutor(0, 1, 1, TimeUnit.MINUTES, new LinkedBlockingQueue<>(), r -> {
+		final var thread = new Thread(r, "ovh-access-refresh");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/**
+	 * Access validation results by subscription and credentials.
+	 */
+	private final OvhAccessCache accessCache = new OvhAccessCache(refresher);
+
 	@Override
 	public String getKey() {
 		return KEY;
@@ -121,8 +170,8 @@ public class ProvOvhPluginResource extends AbstractProvResource implements Impor
 	@Override
 	public SubscriptionStatusWithData checkSubscriptionStatus(final int subscription, final String node,
 			final Map<String, String> parameters) {
-		// Validate the account
-		if (validateAccess(subscription)) {
+		// Validate the account, the result is shared by the close status checks
+		if (isAccessible(subscription)) {
 			// Return the quote details
 			return super.checkSubscriptionStatus(subscription, node, parameters);
 		}
@@ -161,26 +210,32 @@ public class ProvOvhPluginResource extends AbstractProvResource implements Impor
 	 * @return Initialized request.
 	 */
 	protected CurlRequest newRequest(final String query, final Map<String, String> parameters) {
-		final var appKey = parameters.get(PARAMETER_APP_KEY);
-		final var appSecret = parameters.get(PARAMETER_APP_SECRET);
-		final var consumerKey = parameters.get(PARAMETER_CONSUMER_KEY);
 		final var method = "GET";
 		final var body = "";
-
-		final var timestamp = System.currentTimeMillis() / 1000;
-
-		// build signature
-		final var toSign = new StringBuilder(appSecret).append("+").append(consumerKey).append("+").append(method)
-				.append("+").append(query).append("+").append(body).append("+").append(timestamp).toString();
-		final var signature = new StringBuilder("$1$").append(DigestUtils.sha1Hex(toSign)).toString();
 		final var request = new CurlRequest(method, query, body);
-		request.getHeaders()
-				.putAll(Map.of("Content-Type", "application/json", "X-Ovh-Application", appKey, "X-Ovh-Consumer",
-						consumerKey, "X-Ovh-Signature", signature, "X-Ovh-Timestamp", Long.toString(timestamp)));
+		getSigner(parameters).addHeaders(request.getHeaders(), method, query, body, System.currentTimeMillis() / 1000);
 		request.setSaveResponse(true);
 		return request;
 	}
 
+	/**
+	 * Return the signer of the given credentials, created once.
+	 *
+	 * @param parameters Subscription's parameters.
+	 * @return The signer of the credentials.
+	 */
+	private OvhRequestSigner getSigner(final Map<String, String> parameters) {
+		final var appKey = parameters.get(PARAMETER_APP_KEY);
+		final var appSecret = parameters.get(PARAMETER_APP_SECRET);
+		final var consumerKey = parameters.get(PARAMETER_CONSUMER_KEY);
+		final var key = String.join("\n", appKey, appSecret, consumerKey);
+		if (signers.size() >= MAX_SIGNERS) {
+			// Credentials no longer used are dropped along the others
+			signers.clear();
+		}
+		return signers.computeIfAbsent(key, k -> new OvhRequestSigner(appKey, appSecret, consumerKey));
+	}
+
 	/**
 	 * Check OVH connection and account.
 	 *
@@ -189,8 +244,28 @@ public class ProvOvhPluginResource extends AbstractProvResource implements Impor
 	 */
 	private boolean validateAccess(final Map<String, String> parameters) {
 		final var query = "/cloud/project";
-		try (var curlProcessor = new CurlProcessor()) {
-			return curlProcessor.process(newRequest(toUrl(query), parameters));
+		return process(newRequest(toUrl(query), parameters));
+	}
+
+	/**
+	 * Execute a request with the shared HTTP client.
+	 *
+	 * @param request The request to execute.
+	 * @return <code>true</code> when the response status is a success.
+	 */
+	private boolean process(final CurlRequest request) {
+		final var builder = HttpRequest.newBuilder(URI.create(request.getUrl())).timeout(API_TIMEOUT).method(request.getMethod(),
+				BodyPublishers.noBody());
+		request.getHeaders().forEach(builder::header);
+		try {
+			final var status = httpClient.send(builder.build(), BodyHandlers.discarding()).statusCode();
+			return status >= 200 && status < 300;
+		} catch (final IOException e) {
+			log.info("OVH API call {} failed: {}", request.getUrl(), e.getMessage());
+			return false;
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
 		}
 	}
 
@@ -211,11 +286,42 @@ public class ProvOvhPluginResource extends AbstractProvResource implements Impor
 	 * @return <code>true</code> if OVH connection is up
 	 */
 	public boolean validateAccess(final int subscription) {
+		return validateProjectAccess(subscriptionResource.getParameters(subscription));
+	}
+
+	/**
+	 * Check OVH connection and project access with resolved parameters. Does not need a transaction, so can be run by
+	 * the refresh thread.
+	 *
+	 * @param parameters Subscription parameters.
+	 * @return <code>true</code> if OVH connection is up
+	 */
+	protected boolean validateProjectAccess(final Map<String, String> parameters) {
+		final var query = toUrl("/cloud/project/" + parameters.get(PARAMETER_SERVICE_NAME) + "/region");
+		return process(newRequest(query, parameters));
+	}
+
+	/**
+	 * Check OVH connection and account, with a cached result. The cache key includes a hash of the credentials, so an
+	 * edited subscription is validated again. The parameters are resolved by the calling thread, and captured by the
+	 * validation refreshed in the background.
+	 *
+	 * @param subscription Subscription identifier.
+	 * @return <code>true</code> if OVH connection is up
+	 */
+	protected boolean isAccessible(final int subscription) {
 		final var parameters = subscriptionResource.getParameters(subscription);
-		final var query = "/cloud/project/" + parameters.get(PARAMETER_SERVICE_NAME) + "/region";
-		try (var curlProcessor = new CurlProcessor()) {
-			return curlProcessor.process(newRequest(query, subscription));
-		}
+		final var credentials = DigestUtils.sha256Hex(String.join("\n", parameters.get(PARAMETER_APP_KEY), parameters.get(PARAMETER_APP_SECRET),
+				parameters.get(PARAMETER_CONSUMER_KEY), parameters.get(PARAMETER_SERVICE_NAME)));
+		return accessCache.get(subscription + ":" + credentials, () -> validateProjectAccess(parameters));
+	}
+
+	/**
+	 * Stop the pending access refreshes.
+	 */
+	@PreDestroy
+	public void close() {
+		refresher.shutdownNow();
 	}
 
 	@Override
@@ -0,0 +1,148 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.ligoj.app.plugin.prov.model.ProvDatabasePrice;
+import org.ligoj.app.plugin.prov.model.ProvDatabaseType;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
+import org.ligoj.app.plugin.prov.model.ProvInstanceType;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvStoragePrice;
+import org.ligoj.app.plugin.prov.model.ProvStorageType;
+
+/**
+ * Context shared by several threads installing the same catalog. The maps are concurrent, including the ones given to
+ * the setters. The installation of a shared entity is serialized by code: two workers never create nor merge the same
+ * entity at the same time, while the other codes are installed concurrently. The staged instance prices and the price
+ * lookups belong to each thread, as they are written by the transaction of their thread.
+ */
+public class ConcurrentUpdateContext extends UpdateContext {
+
+	/**
+	 * Amount of locks shared by the entity codes.
+	 */
+	private static final int STRIPES = 64;
+
+	private final ReentrantLock[] stripes = new ReentrantLock[STRIPES];
+
+	private final ThreadLocal<List<ProvInstancePrice>> dirtyInstancePrices = ThreadLocal.withInitial(ArrayList::new);
+
+	private final ThreadLocal<OvhPriceLookup<ProvInstancePrice>> instancePrices = new ThreadLocal<>();
+
+	private final ThreadLocal<OvhPriceLookup<ProvDatabasePrice>> databasePrices = new ThreadLocal<>();
+
+	/**
+	 * Empty concurrent context.
+	 */
+	public ConcurrentUpdateContext() {
+		for (var i = 0; i < STRIPES; i++) {
+			stripes[i] = new ReentrantLock();
+		}
+		setMapRegionById(Map.of());
+		setRegions(Map.of());
+		setPriceTerms(Map.of());
+		setInstanceTypes(Map.of());
+		setPrevious(Map.of());
+		setDatabaseTypes(Map.of());
+		setPreviousDatabase(Map.of());
+		setStorageTypes(Map.of());
+		setPreviousStorage(Map.of());
+	}
+
+	@Override
+	public <T> T locked(final String code, final Supplier<T> installer) {
+		final var lock = stripes[Math.floorMod(code.hashCode(), STRIPES)];
+		lock.lock();
+		try {
+			return installer.get();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	@Override
+	public void clearPrices() {
+		dirtyInstancePrices.remove();
+		instancePrices.remove();
+		databasePrices.remove();
+	}
+
+	@Override
+	public List<ProvInstancePrice> getDirtyInstancePrices() {
+		return dirtyInstancePrices.get();
+	}
+
+	@Override
+	public OvhPriceLookup<ProvInstancePrice> getInstancePrices() {
+		return instancePrices.get();
+	}
+
+	@Override
+	public void setInstancePrices(final OvhPriceLookup<ProvInstancePrice> instancePrices) {
+		this.instancePrices.set(instancePrices);
+	}
+
+	@Override
+	public OvhPriceLookup<ProvDatabasePrice> getDatabasePrices() {
+		return databasePrices.get();
+	}
+
+	@Override
+	public void setDatabasePrices(final OvhPriceLookup<ProvDatabasePrice> databasePrices) {
+		this.databasePrices.set(databasePrices);
+	}
+
+	@Override
+	public void setMapRegionById(final Map<String, ProvLocation> mapRegionById) {
+		super.setMapRegionById(new ConcurrentHashMap<>(mapRegionById));
+	}
+
+	@Override
+	public void setRegions(final Map<String, ProvLocation> regions) {
+		super.setRegions(new ConcurrentHashMap<>(regions));
+	}
+
+	@Override
+	public void setPriceTerms(final Map<String, ProvInstancePriceTerm> priceTerms) {
+		super.setPriceTerms(new ConcurrentHashMap<>(priceTerms));
+	}
+
+	@Override
+	public void setInstanceTypes(final Map<String, ProvInstanceType> instanceTypes) {
+		super.setInstanceTypes(new ConcurrentHashMap<>(instanceTypes));
+	}
+
+	@Override
+	public void setPrevious(final Map<String, ProvInstancePrice> previous) {
+		super.setPrevious(new ConcurrentHashMap<>(previous));
+	}
+
+	@Override
+	public void setDatabaseTypes(final Map<String, ProvDatabaseType> databaseTypes) {
+		super.setDatabaseTypes(new ConcurrentHashMap<>(databaseTypes));
+	}
+
+	@Override
+	public void setPreviousDatabase(final Map<String, ProvDatabasePrice> previousDatabase) {
+		super.setPreviousDatabase(new ConcurrentHashMap<>(previousDatabase));
+	}
+
+	@Override
+	public void setStorageTypes(final Map<String, ProvStorageType> storageTypes) {
+		super.setStorageTypes(new ConcurrentHashMap<>(storageTypes));
+	}
+
+	@Override
+	public void setPreviousStorage(final Map<String, ProvStoragePrice> previousStorage) {
+		super.setPreviousStorage(new ConcurrentHashMap<>(previousStorage));
+	}
+}
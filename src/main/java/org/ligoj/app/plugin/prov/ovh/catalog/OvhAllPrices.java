@@ -4,31 +4,197 @@
 package org.ligoj.app.plugin.prov.ovh.catalog;
 
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
-
-import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
 
 import lombok.Getter;
+import lombok.Setter;
 
-@JsonIgnoreProperties(ignoreUnknown = true)
+/**
+ * Parsed OVH catalog. The plans and the region names are dictionaries referenced by identifier from the regional
+ * price columns of each category.
+ */
 public class OvhAllPrices {
 
+	/**
+	 * Plan dictionary, the identifier is the index.
+	 */
 	@Getter
-	private final List<OvhAttrInstance> storage = new ArrayList<OvhAttrInstance>();
+	private final List<OvhPlan> plans;
 
-	@Getter
-	private final List<OvhAttrInstance> archive = new ArrayList<OvhAttrInstance>();
+	/**
+	 * Region dictionary, the identifier is the index.
+	 */
+	private final List<String> regions;
 
-	@Getter
-	private final List<OvhAttrInstance> volumes = new ArrayList<OvhAttrInstance>();
+	private final Map<String, Integer> regionIds;
 
-	@Getter
-	private final List<OvhAttrInstance> instances = new ArrayList<OvhAttrInstance>();
+	private final Map<OvhPlanCategory, OvhPriceColumns> columns = new EnumMap<>(OvhPlanCategory.class);
 
+	/**
+	 * Digest of the normalized price feed.
+	 */
 	@Getter
-	private final List<OvhAttrInstance> snapshots = new ArrayList<OvhAttrInstance>();
+	@Setter
+	private String digest;
 
-	@Getter
-	private final List<OvhAttrInstance> databases = new ArrayList<OvhAttrInstance>();
+	/**
+	 * Empty catalog.
+	 */
+	public OvhAllPrices() {
+		this(new ArrayList<>(), new ArrayList<>(), new HashMap<>());
+	}
+
+	/**
+	 * Empty catalog sharing the given dictionaries.
+	 */
+	private OvhAllPrices(final List<OvhPlan> plans, final List<String> regions, final Map<String, Integer> regionIds) {
+		this.plans = plans;
+		this.regions = regions;
+		this.regionIds = regionIds;
+		for (final var category : OvhPlanCategory.values()) {
+			columns.put(category, new OvhPriceColumns());
+		}
+	}
+
+	/**
+	 * Add a plan to the dictionary.
+	 *
+	 * @param plan The plan to add.
+	 * @return The plan identifier.
+	 */
+	public int addPlan(final OvhPlan plan) {
+		plans.add(plan);
+		return plans.size() - 1;
+	}
+
+	/**
+	 * Return a plan from its identifier.
+	 *
+	 * @param plan The plan identifier.
+	 * @return The plan.
+	 */
+	public OvhPlan getPlan(final int plan) {
+		return plans.get(plan);
+	}
+
+	/**
+	 * Return the identifier of a region name, added to the dictionary as needed.
+	 *
+	 * @param region The region name.
+	 * @return The region identifier.
+	 */
+	public int internRegion(final String region) {
+		return regionIds.computeIfAbsent(region, r -> {
+			regions.add(r);
+			return regions.size() - 1;
+		});
+	}
+
+	/**
+	 * Return a region name from its identifier.
+	 *
+	 * @param region The region identifier.
+	 * @return The region name.
+	 */
+	public String getRegion(final int region) {
+		return regions.get(region);
+	}
+
+	/**
+	 * Return the regional prices of a category.
+	 *
+	 * @param category The plan category.
+	 * @return The regional prices of this category.
+	 */
+	public OvhPriceColumns getColumns(final OvhPlanCategory category) {
+		return columns.get(category);
+	}
+
+	/**
+	 * Replace the regional prices of a category by empty ones. The plans are kept in the dictionary.
+	 *
+	 * @param category The plan category.
+	 * @return The new empty regional prices of this category.
+	 */
+	public OvhPriceColumns resetColumns(final OvhPlanCategory category) {
+		final var reset = new OvhPriceColumns();
+		columns.put(category, reset);
+		return reset;
+	}
+
+	/**
+	 * Return the amount of regional prices of all the categories.
+	 *
+	 * @return The amount of rows.
+	 */
+	public int size() {
+		return columns.values().stream().mapToInt(OvhPriceColumns::size).sum();
+	}
+
+	/**
+	 * Return the global region of a datacenter, such as <code>gra</code> for <code>GRA7</code>. The database prices
+	 * are only defined for global regions.
+	 *
+	 * @param datacenter The datacenter or region name.
+	 * @return The lower case global region name.
+	 */
+	public static String toGlobalRegion(final String datacenter) {
+		var end = datacenter.length();
+		while (end > 1 && Character.isDigit(datacenter.charAt(end - 1))) {
+			end--;
+		}
+		return datacenter.substring(0, end).toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Split the regional prices by global region, see {@link #toGlobalRegion(String)}. A shard holds all
+	 * the prices of its region, whatever their category and datacenter, so two shards never install the same price.
+	 * The shards share the dictionaries of this catalog, which must no more be completed.
+	 *
+	 * @return The catalog of each global region, ordered by region name.
+	 */
+	public Map<String, OvhAllPrices> shardByRegion() {
+		final var shards = new TreeMap<String, OvhAllPrices>();
+		columns.forEach((category, source) -> {
+			for (var i = 0; i < source.size(); i++) {
+				final var region = toGlobalRegion(getRegion(source.getRegion(i)));
+				final var shard = shards.computeIfAbsent(region, r -> {
+					final var newShard = new OvhAllPrices(plans, regions, regionIds);
+					newShard.digest = digest;
+					return newShard;
+				});
+				shard.getColumns(category).add(source.getPlan(i), source.getRegion(i), source, i);
+			}
+		});
+		return shards;
+	}
+
+	public OvhPriceColumns getInstances() {
+		return getColumns(OvhPlanCategory.INSTANCE);
+	}
+
+	public OvhPriceColumns getDatabases() {
+		return getColumns(OvhPlanCategory.DATABASE);
+	}
+
+	public OvhPriceColumns getStorage() {
+		return getColumns(OvhPlanCategory.STORAGE);
+	}
+
+	public OvhPriceColumns getArchive() {
+		return getColumns(OvhPlanCategory.ARCHIVE);
+	}
+
+	public OvhPriceColumns getVolumes() {
+		return getColumns(OvhPlanCategory.VOLUME);
+	}
 
+	public OvhPriceColumns getSnapshots() {
+		return getColumns(OvhPlanCategory.SNAPSHOT);
+	}
 }
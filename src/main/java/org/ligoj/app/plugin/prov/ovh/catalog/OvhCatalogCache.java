@@ -0,0 +1,164 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+/**
+ * Local snapshot of a remote catalog resource with the HTTP validators of its last successful import. Used to perform
+ * conditional downloads: the validators are only stored once the snapshot has been imported, so a failed import is
+ * never considered as up-to-date.
+ */
+public class OvhCatalogCache {
+
+	private static final String ETAG = "ETag";
+
+	private static final String LAST_MODIFIED = "Last-Modified";
+
+	private final String url;
+
+	private final Path payload;
+
+	private final Path validators;
+
+	private final Path prices;
+
+	private final Properties pending = new Properties();
+
+	private boolean modified;
+
+	/**
+	 * Snapshot cache of a remote resource.
+	 *
+	 * @param directory The cache directory. Created as needed.
+	 * @param url       The remote resource URL. Each URL has its own snapshot.
+	 */
+	public OvhCatalogCache(final Path directory, final String url) {
+		final var key = DigestUtils.sha1Hex(url);
+		this.url = url;
+		this.payload = directory.resolve(key + ".json");
+		this.validators = directory.resolve(key + ".properties");
+		this.prices = directory.resolve(key + ".prices");
+	}
+
+	/**
+	 * Return the file of the prices written by the last successful import, see {@link OvhPriceSnapshot}.
+	 *
+	 * @return The price snapshot file.
+	 */
+	public Path getPriceSnapshot() {
+		return prices;
+	}
+
+	/**
+	 * Indicate a complete snapshot is available.
+	 *
+	 * @return <code>true</code> when a snapshot and its validators are available.
+	 */
+	public boolean exists() {
+		return Files.isReadable(payload) && Files.isReadable(validators);
+	}
+
+	/**
+	 * Add the conditional headers to the given request when a snapshot is available.
+	 *
+	 * @param request The request to complete.
+	 * @throws IOException When the validators cannot be read.
+	 */
+	public void prepare(final HttpRequest.Builder request) throws IOException {
+		if (exists()) {
+			final var stored = new Properties();
+			try (var input = Files.newInputStream(validators)) {
+				stored.load(input);
+			}
+			addHeader(request, "If-None-Match", stored.getProperty(ETAG));
+			addHeader(request, "If-Modified-Since", stored.getProperty(LAST_MODIFIED));
+		}
+	}
+
+	private void addHeader(final HttpRequest.Builder request, final String header, final String value) {
+		if (value != null) {
+			request.header(header, value);
+		}
+	}
+
+	/**
+	 * Replace the snapshot by the given content. The previous validators are dropped, and the new ones are kept aside
+	 * until {@link #commit()}.
+	 *
+	 * @param input   The new content.
+	 * @param headers The response headers holding the validators.
+	 * @return The amount of stored bytes.
+	 * @throws IOException When the snapshot cannot be written.
+	 */
+	public long store(final InputStream input, final HttpHeaders headers) throws IOException {
+		Files.createDirectories(payload.getParent());
+		Files.deleteIfExists(validators);
+		final var tmp = Files.createTempFile(payload.getParent(), payload.getFileName().toString(), ".tmp");
+		final long size;
+		try {
+			size = Files.copy(input, tmp, StandardCopyOption.REPLACE_EXISTING);
+			Files.move(tmp, payload, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+		modified = true;
+		pending.clear();
+		headers.firstValue(ETAG).ifPresent(v -> pending.setProperty(ETAG, v));
+		headers.firstValue(LAST_MODIFIED).ifPresent(v -> pending.setProperty(LAST_MODIFIED, v));
+		return size;
+	}
+
+	/**
+	 * Open the snapshot content. The snapshot is stored as transferred: a gzip compressed one is decompressed along
+	 * the reading.
+	 *
+	 * @return The opened stream. Must be closed by the caller.
+	 * @throws IOException When the snapshot cannot be read.
+	 */
+	public InputStream open() throws IOException {
+		return OvhCatalogSource.decompress(Files.newInputStream(payload));
+	}
+
+	/**
+	 * Read the snapshot content as stored, compressed or not.
+	 *
+	 * @return The stored content.
+	 * @throws IOException When the snapshot cannot be read.
+	 */
+	public byte[] read() throws IOException {
+		return Files.readAllBytes(payload);
+	}
+
+	/**
+	 * Indicate a new content has been stored by this instance.
+	 *
+	 * @return <code>true</code> when the snapshot has been replaced since the last successful import.
+	 */
+	public boolean isModified() {
+		return modified;
+	}
+
+	/**
+	 * Persist the validators of the stored snapshot. To be called once the snapshot has been successfully imported.
+	 *
+	 * @throws IOException When the validators cannot be written.
+	 */
+	public void commit() throws IOException {
+		if (!pending.isEmpty()) {
+			try (var output = Files.newOutputStream(validators)) {
+				pending.store(output, url);
+			}
+		}
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+/**
+ * Engine reading the OVH catalog.
+ */
+public enum OvhCatalogEngine {
+
+	/**
+	 * The price feed scraped from the public price pages.
+	 */
+	FEED,
+
+	/**
+	 * The price feed completed by the flavors, the database availability, capabilities and prices endpoints: the
+	 * instances and the databases are only priced where they are available, with the specifications of the API.
+	 */
+	STRUCTURED
+}
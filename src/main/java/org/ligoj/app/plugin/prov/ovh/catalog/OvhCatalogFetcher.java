@@ -0,0 +1,234 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Concurrent download of the catalog endpoints. At most <code>concurrency</code> endpoints are downloaded at the same
+ * time, each request has its own timeout, and the transient failures are retried after a jittered exponential
+ * backoff. Each payload is handed to its handler as soon as it is downloaded, so the parsing of an endpoint overlaps
+ * the download of the other ones. The failures of all the endpoints are reported together.
+ */
+@Slf4j
+public class OvhCatalogFetcher implements AutoCloseable {
+
+	/**
+	 * Default maximal amount of concurrent downloads.
+	 */
+	public static final int DEFAULT_CONCURRENCY = 4;
+
+	/**
+	 * Default timeout of each request.
+	 */
+	public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(60);
+
+	/**
+	 * Default amount of retries of a transient failure.
+	 */
+	public static final int DEFAULT_RETRIES = 2;
+
+	/**
+	 * Default delay before the first retry, doubled for each next one.
+	 */
+	public static final Duration DEFAULT_BACKOFF = Duration.ofMillis(500);
+
+	/**
+	 * Payload consumer, called from the download thread.
+	 */
+	@FunctionalInterface
+	public interface Handler {
+
+		/**
+		 * Consume a downloaded payload.
+		 *
+		 * @param url  The downloaded URL.
+		 * @param body The payload, compressed or not.
+		 * @throws IOException When the payload cannot be parsed.
+		 */
+		void accept(String url, byte[] body) throws IOException;
+	}
+
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private final HttpClient httpClient;
+
+	private final ExecutorService executor;
+
+	private final Duration timeout;
+
+	private final int retries;
+
+	private final Duration backoff;
+
+	/**
+	 * Fetcher with custom settings.
+	 *
+	 * @param httpClient  The HTTP client.
+	 * @param concurrency The maximal amount of concurrent downloads.
+	 * @param timeout     The timeout of each request.
+	 * @param retries     The amount of retries of a transient failure.
+	 * @param backoff     The delay before the first retry, doubled for each next one.
+	 */
+	public OvhCatalogFetcher(final HttpClient httpClient, final int concurrency, final Duration timeout, final int retries,
+			final Duration backoff) {
+		this.httpClient = httpClient;
+		this.executor = Executors.newFixedThreadPool(Math.max(1, concurrency), r -> {
+			final var thread = new Thread(r, "ovh-catalog-fetch-" + THREADS.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timeout = timeout;
+		this.retries = Math.max(0, retries);
+		this.backoff = backoff;
+	}
+
+	/**
+	 * Download the given URLs and hand each payload to the handler.
+	 *
+	 * @param urls     The URLs to download.
+	 * @param download The download metrics.
+	 * @param handler  The payload consumer, called from the download threads.
+	 * @return The completion of all the downloads. Completed exceptionally with an {@link IOException} having each
+	 *         failure as suppressed exception when at least one endpoint failed.
+	 */
+	public CompletableFuture<Void> fetchAll(final Collection<String> urls, final OvhImportMetrics.Phase download,
+			final Handler handler) {
+		return fetchAll(urls, url -> null, download, handler);
+	}
+
+	/**
+	 * Download the given URLs with conditional requests, and hand each payload to the handler. The payload of a not
+	 * modified URL is read from its snapshot.
+	 *
+	 * @param urls     The URLs to download.
+	 * @param caches   The snapshot of each URL, <code>null</code> for an unconditional download. A downloaded payload
+	 *                 replaces the snapshot.
+	 * @param download The download metrics.
+	 * @param handler  The payload consumer, called from the download threads.
+	 * @return The completion of all the downloads. Completed exceptionally with an {@link IOException} having each
+	 *         failure as suppressed exception when at least one endpoint failed.
+	 */
+	public CompletableFuture<Void> fetchAll(final Collection<String> urls, final Function<String, OvhCatalogCache> caches,
+			final OvhImportMetrics.Phase download, final Handler handler) {
+		final var futures = urls.stream().map(url -> {
+			final var cache = caches.apply(url);
+			return CompletableFuture.runAsync(() -> {
+				try {
+					handler.accept(url, fetch(url, cache, download));
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}, executor);
+		}).toList();
+		return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).handle((v, t) -> {
+			if (t == null) {
+				return null;
+			}
+			final var failure = new IOException("Unable to fetch the OVH catalog");
+			futures.stream().filter(CompletableFuture::isCompletedExceptionally).forEach(f -> failure.addSuppressed(getCause(f)));
+			throw new CompletionException(failure);
+		});
+	}
+
+	private static Throwable getCause(final CompletableFuture<Void> future) {
+		try {
+			future.join();
+			return null;
+		} catch (final CompletionException e) {
+			return e.getCause() instanceof UncheckedIOException u ? u.getCause() : e.getCause();
+		}
+	}
+
+	/**
+	 * Download an URL, retrying the transient failures. When a snapshot is given, the request is conditional.
+	 */
+	private byte[] fetch(final String url, final OvhCatalogCache cache, final OvhImportMetrics.Phase download) throws IOException {
+		final var builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).header("Accept-Encoding", "gzip").GET();
+		if (cache != null) {
+			cache.prepare(builder);
+		}
+		final var request = builder.build();
+		for (var attempt = 0;; attempt++) {
+			HttpResponse<byte[]> response = null;
+			IOException failure = null;
+			try {
+				response = httpClient.send(request, BodyHandlers.ofByteArray());
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted download of " + url);
+			} catch (final IOException e) {
+				// Network failure or timeout
+				failure = e;
+			}
+			if (response != null) {
+				if (response.statusCode() == HttpURLConnection.HTTP_OK) {
+					download.getItems().incrementAndGet();
+					download.getBytes().addAndGet(response.body().length);
+					if (cache != null) {
+						cache.store(new ByteArrayInputStream(response.body()), response.headers());
+					}
+					return response.body();
+				}
+				if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED && cache != null) {
+					return cache.read();
+				}
+				failure = new IOException("Unable to get OVH catalog " + url + ", status " + response.statusCode());
+				if (!isTransient(response.statusCode())) {
+					throw failure;
+				}
+			}
+			if (attempt >= retries) {
+				throw failure;
+			}
+			log.info("OVH catalog {} download failed, retry {}/{}: {}", url, attempt + 1, retries, failure.getMessage());
+			sleep(attempt);
+		}
+	}
+
+	/**
+	 * Indicate a status is worth a retry: too many requests or server error.
+	 */
+	private static boolean isTransient(final int status) {
+		return status == 429 || status >= HttpURLConnection.HTTP_INTERNAL_ERROR;
+	}
+
+	/**
+	 * Wait before a retry: the doubled backoff of each attempt, with a random jitter of up to the half of it.
+	 */
+	private void sleep(final int attempt) throws InterruptedIOException {
+		final var delay = backoff.toMillis() << Math.min(attempt, 10);
+		try {
+			Thread.sleep(delay / 2 + ThreadLocalRandom.current().nextLong(delay / 2 + 1));
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted download retry");
+		}
+	}
+
+	@Override
+	public void close() {
+		executor.shutdownNow();
+	}
+}
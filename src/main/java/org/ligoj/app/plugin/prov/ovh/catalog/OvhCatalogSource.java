@@ -0,0 +1,73 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Source of the OVH price feed: a remote URL, a local file or any other stream provider.
+ */
+@FunctionalInterface
+public interface OvhCatalogSource {
+
+	/**
+	 * Buffer size of the read content.
+	 */
+	int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Open the price feed.
+	 *
+	 * @param force    When <code>true</code>, the feed is opened even when not modified since the last successful
+	 *                 import.
+	 * @param download The download metrics to complete.
+	 * @return The opened feed, decompressed as needed. <code>null</code> when the feed is not modified and the import
+	 *         is not forced. Must be closed by the caller.
+	 * @throws IOException When the feed is not available or cannot be read.
+	 */
+	InputStream open(boolean force, OvhImportMetrics.Phase download) throws IOException;
+
+	/**
+	 * Open again the feed of the last {@link #open(boolean, OvhImportMetrics.Phase)}, to read it once more.
+	 *
+	 * @param download The download metrics to complete.
+	 * @return The opened feed, decompressed as needed. Must be closed by the caller.
+	 * @throws IOException When the feed is not available or cannot be read.
+	 */
+	default InputStream reopen(final OvhImportMetrics.Phase download) throws IOException {
+		return open(true, download);
+	}
+
+	/**
+	 * Notify the feed has been successfully imported.
+	 *
+	 * @throws IOException When the state of this source cannot be written.
+	 */
+	default void commit() throws IOException {
+		// Stateless source
+	}
+
+	/**
+	 * Return a stream decompressing the given content when it is gzip compressed.
+	 *
+	 * @param input The content, compressed or not.
+	 * @return The decompressed content.
+	 * @throws IOException When the content cannot be read. The given stream is then closed.
+	 */
+	static InputStream decompress(final InputStream input) throws IOException {
+		final var buffered = new BufferedInputStream(input, BUFFER_SIZE);
+		try {
+			buffered.mark(2);
+			final var magic = buffered.read() | buffered.read() << 8;
+			buffered.reset();
+			return magic == GZIPInputStream.GZIP_MAGIC ? new GZIPInputStream(buffered, BUFFER_SIZE) : buffered;
+		} catch (final IOException e) {
+			buffered.close();
+			throw e;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Availability of a database engine, plan and flavor in a datacenter.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OvhDatabaseAvailability {
+
+	/**
+	 * Database engine, such as <code>mysql</code>.
+	 */
+	private String engine;
+
+	private String version;
+
+	/**
+	 * Database service level, such as <code>business</code>.
+	 */
+	private String plan;
+
+	/**
+	 * Datacenter, such as <code>GRA7</code>.
+	 */
+	private String region;
+
+	/**
+	 * Database flavor, such as <code>db1-7</code>.
+	 */
+	private String flavor;
+
+	private String status;
+}
@@ -0,0 +1,52 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Capabilities of the OVH database service. Only the flavor specifications are used.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OvhDatabaseCapabilities {
+
+	/**
+	 * Database flavor specifications.
+	 */
+	@Getter
+	@Setter
+	@JsonIgnoreProperties(ignoreUnknown = true)
+	public static class Flavor {
+
+		/**
+		 * Flavor name, such as <code>db1-7</code>.
+		 */
+		private String name;
+
+		/**
+		 * vCPU count.
+		 */
+		private int core;
+
+		/**
+		 * RAM in GB.
+		 */
+		private int memory;
+
+		/**
+		 * Storage in GB.
+		 */
+		private int storage;
+	}
+
+	private List<Flavor> flavors = new ArrayList<>();
+}
@@ -0,0 +1,32 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Price of a database plan.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OvhDatabasePrice {
+
+	/**
+	 * Plan code format: "databases.{engine}-{plan}-{flavor}.hour.consumption".
+	 */
+	private String planCode;
+
+	/**
+	 * Prices of all the regions by billing term: <code>hourly</code> and <code>monthly</code>.
+	 */
+	private Map<String, String> all;
+
+	private String regions;
+}
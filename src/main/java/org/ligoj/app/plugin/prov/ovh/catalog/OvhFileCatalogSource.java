@@ -0,0 +1,83 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+
+/**
+ * Local price feed, such as a mirror of the remote one. The file is memory mapped, there is no copy. A missing file is
+ * completed with the ".gz" extension of a pre-compressed feed.
+ */
+public class OvhFileCatalogSource implements OvhCatalogSource {
+
+	private final Path file;
+
+	/**
+	 * Local source.
+	 *
+	 * @param file The price feed file, compressed or not.
+	 */
+	public OvhFileCatalogSource(final Path file) {
+		this.file = file;
+	}
+
+	@Override
+	public InputStream open(final boolean force, final OvhImportMetrics.Phase download) throws IOException {
+		var actual = file;
+		if (!Files.isReadable(actual)) {
+			actual = file.resolveSibling(file.getFileName() + ".gz");
+			if (!Files.isReadable(actual)) {
+				throw new NoSuchFileException(file.toString());
+			}
+		}
+		try (var channel = FileChannel.open(actual)) {
+			final var size = channel.size();
+			download.getItems().incrementAndGet();
+			download.getBytes().addAndGet(size);
+			if (size > Integer.MAX_VALUE) {
+				// Too large to be mapped at once
+				return OvhCatalogSource.decompress(Files.newInputStream(actual));
+			}
+			return OvhCatalogSource.decompress(new BufferStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, size)));
+		}
+	}
+
+	/**
+	 * Stream of a mapped buffer. The mapping remains valid once the channel is closed.
+	 */
+	private static class BufferStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private BufferStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset, final int length) {
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final var count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
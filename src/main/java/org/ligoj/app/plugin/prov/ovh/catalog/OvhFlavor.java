@@ -0,0 +1,48 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Map;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Instance flavor of the OVH API, available or not in a datacenter.
+ */
+@Getter
+@Setter
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class OvhFlavor {
+
+	private String name;
+
+	/**
+	 * Datacenter, such as <code>GRA7</code>.
+	 */
+	private String region;
+
+	/**
+	 * RAM in MB.
+	 */
+	private int ram;
+
+	/**
+	 * Disk size in GB.
+	 */
+	private int disk;
+
+	private int vcpus;
+
+	private String osType;
+
+	private boolean available;
+
+	/**
+	 * Plan codes by billing term: <code>hourly</code> and <code>monthly</code>.
+	 */
+	private Map<String, String> planCodes;
+}
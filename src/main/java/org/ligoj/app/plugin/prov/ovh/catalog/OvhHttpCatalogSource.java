@@ -0,0 +1,100 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Remote price feed downloaded into a local snapshot. The download is conditional when a snapshot is available, and
+ * the compressed content is stored as is, then decompressed while parsed.
+ */
+@Slf4j
+public class OvhHttpCatalogSource implements OvhCatalogSource {
+
+	private final HttpClient httpClient;
+
+	private final String url;
+
+	private final OvhCatalogCache cache;
+
+	private final String digest;
+
+	private final Duration timeout;
+
+	/**
+	 * Remote source.
+	 *
+	 * @param httpClient The HTTP client.
+	 * @param url        The price feed URL.
+	 * @param cache      The local snapshot of the price feed.
+	 * @param digest     The digest of the last successful import of the node, <code>null</code> when never
+	 *                   imported.
+	 * @param timeout    The timeout of the request, until the response headers are received.
+	 */
+	public OvhHttpCatalogSource(final HttpClient httpClient, final String url, final OvhCatalogCache cache, final String digest,
+			final Duration timeout) {
+		this.httpClient = httpClient;
+		this.url = url;
+		this.cache = cache;
+		this.digest = digest;
+		this.timeout = timeout;
+	}
+
+	@Override
+	public InputStream open(final boolean force, final OvhImportMetrics.Phase download) throws IOException {
+		final var request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).header("Accept-Encoding", "gzip").GET();
+		cache.prepare(request);
+		try {
+			final var response = httpClient.send(request.build(), BodyHandlers.ofInputStream());
+			try (var body = response.body()) {
+				if (response.statusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+					if (!isImported()) {
+						// The local snapshot is not the last import of the node, such as after a reset of the database
+						log.info("OVH catalog {} is not modified, but not imported", url);
+					} else if (!force) {
+						log.info("OVH catalog {} is not modified", url);
+						return null;
+					}
+				} else if (response.statusCode() == HttpURLConnection.HTTP_OK) {
+					download.getItems().incrementAndGet();
+					download.getBytes().addAndGet(cache.store(body, response.headers()));
+				} else {
+					// The previous import is kept, and the failure is reported
+					throw new IOException("Unable to get OVH catalog " + url + ", status " + response.statusCode());
+				}
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted download of " + url, e);
+		}
+		return cache.open();
+	}
+
+	/**
+	 * Indicate the local snapshot is the last successful import of the node.
+	 */
+	private boolean isImported() throws IOException {
+		return digest != null && digest.equals(OvhPriceSnapshot.readDigest(cache.getPriceSnapshot()));
+	}
+
+	@Override
+	public InputStream reopen(final OvhImportMetrics.Phase download) throws IOException {
+		// The snapshot is read again, without downloading the feed again
+		return cache.open();
+	}
+
+	@Override
+	public void commit() throws IOException {
+		cache.commit();
+	}
+}
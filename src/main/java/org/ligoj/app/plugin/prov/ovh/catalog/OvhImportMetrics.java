@@ -0,0 +1,153 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Getter;
+
+/**
+ * Metrics of a catalog import, by phase: elapsed time, processed items, downloaded bytes and written rows. Safe for
+ * concurrent sections.
+ */
+public class OvhImportMetrics {
+
+	/**
+	 * Download of the remote catalog.
+	 */
+	public static final String DOWNLOAD = "download";
+
+	/**
+	 * Parsing of the catalog, classification included.
+	 */
+	public static final String PARSE = "parse";
+
+	/**
+	 * Classification of the plans.
+	 */
+	public static final String CLASSIFY = "classify";
+
+	/**
+	 * Instance types and prices.
+	 */
+	public static final String VM = "vm";
+
+	/**
+	 * Database types and prices.
+	 */
+	public static final String DATABASE = "database";
+
+	/**
+	 * Storage types and prices.
+	 */
+	public static final String STORAGE = "storage";
+
+	/**
+	 * Support types and prices.
+	 */
+	public static final String SUPPORT = "support";
+
+	/**
+	 * Types, terms and locations shared by the regions of the region-sharded import.
+	 */
+	public static final String TYPES = "types";
+
+	/**
+	 * Prefix of the phase of a global region in the region-sharded import, such as <code>region-gra</code>.
+	 */
+	public static final String REGION = "region-";
+
+	/**
+	 * Removal of the prices no more in the catalog.
+	 */
+	public static final String RETIRE = "retire";
+
+	/**
+	 * Counters of a phase. The phase can be timed several times, the elapsed times are summed.
+	 */
+	@Getter
+	public static class Phase {
+
+		private final String name;
+
+		private final AtomicLong elapsed = new AtomicLong();
+
+		private final AtomicLong items = new AtomicLong();
+
+		private final AtomicLong bytes = new AtomicLong();
+
+		private final AtomicLong inserted = new AtomicLong();
+
+		private final AtomicLong updated = new AtomicLong();
+
+		private final AtomicLong skipped = new AtomicLong();
+
+		private final AtomicLong deleted = new AtomicLong();
+
+		private Phase(final String name) {
+			this.name = name;
+		}
+
+		/**
+		 * Add the time elapsed since the given start.
+		 *
+		 * @param start The start, from {@link System#nanoTime()}.
+		 */
+		public void stop(final long start) {
+			elapsed.addAndGet(System.nanoTime() - start);
+		}
+
+		/**
+		 * Return the elapsed time.
+		 *
+		 * @return The elapsed milliseconds.
+		 */
+		public long getElapsedMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(elapsed.get());
+		}
+
+		/**
+		 * Return the processed items per second.
+		 *
+		 * @return The throughput, <code>0</code> when not timed.
+		 */
+		public double getThroughput() {
+			final var nanos = elapsed.get();
+			return nanos == 0 ? 0 : items.get() * 1e9 / nanos;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: %d items in %d ms (%.0f/s), %d bytes, %d inserted, %d updated, %d skipped, %d deleted", name,
+					items.get(), getElapsedMillis(), getThroughput(), bytes.get(), inserted.get(), updated.get(), skipped.get(),
+					deleted.get());
+		}
+	}
+
+	private final Map<String, Phase> phases = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the counters of a phase, created as needed.
+	 *
+	 * @param phase The phase name.
+	 * @return The counters of the phase.
+	 */
+	public Phase get(final String phase) {
+		return phases.computeIfAbsent(phase, Phase::new);
+	}
+
+	/**
+	 * Return the counters of all the started phases.
+	 *
+	 * @return The counters of all the started phases.
+	 */
+	public Collection<Phase> getPhases() {
+		return new ArrayList<>(phases.values());
+	}
+}
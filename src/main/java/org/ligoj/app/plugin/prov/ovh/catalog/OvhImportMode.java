@@ -0,0 +1,33 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+/**
+ * Execution mode of the OVH catalog import.
+ */
+public enum OvhImportMode {
+
+	/**
+	 * The VM, database, storage and support sections are installed one after another within the caller transaction.
+	 */
+	SERIAL,
+
+	/**
+	 * The VM, database, storage and support sections are installed at the same time, each one in its own transaction.
+	 */
+	PARALLEL,
+
+	/**
+	 * The feed is parsed in a background thread while the VM and database prices are installed as soon as they are
+	 * parsed, within the caller transaction. The storage and support sections are installed once the feed is parsed.
+	 */
+	PIPELINE,
+
+	/**
+	 * The types, terms and locations are installed first within their own transaction. Then the prices of each global
+	 * region are installed at the same time, each region in its own transaction. A failed region does not roll back the
+	 * completed ones.
+	 */
+	REGION
+}
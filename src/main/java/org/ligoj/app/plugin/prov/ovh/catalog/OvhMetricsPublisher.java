@@ -0,0 +1,67 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.concurrent.TimeUnit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Publish the metrics of a catalog import to the Micrometer global registry. Only loaded when Micrometer is available.
+ */
+public final class OvhMetricsPublisher {
+
+	/**
+	 * Prefix of the published meters.
+	 */
+	public static final String PREFIX = "ligoj.prov.ovh.import";
+
+	private OvhMetricsPublisher() {
+		// Utility class
+	}
+
+	/**
+	 * Publish the metrics of an import to the global registry.
+	 *
+	 * @param node    The imported node.
+	 * @param metrics The metrics of the import.
+	 */
+	public static void publish(final String node, final OvhImportMetrics metrics) {
+		publish(Metrics.globalRegistry, node, metrics);
+	}
+
+	/**
+	 * Publish the metrics of an import: a timer by phase, and counters of the items, bytes and rows.
+	 *
+	 * @param registry The target registry.
+	 * @param node     The imported node.
+	 * @param metrics  The metrics of the import.
+	 */
+	public static void publish(final MeterRegistry registry, final String node, final OvhImportMetrics metrics) {
+		metrics.getPhases().forEach(p -> {
+			Timer.builder(PREFIX + ".duration").tag("node", node).tag("phase", p.getName()).register(registry)
+					.record(p.getElapsed().get(), TimeUnit.NANOSECONDS);
+			count(registry, "items", node, p.getName(), null, p.getItems().get());
+			count(registry, "bytes", node, p.getName(), null, p.getBytes().get());
+			count(registry, "rows", node, p.getName(), "inserted", p.getInserted().get());
+			count(registry, "rows", node, p.getName(), "updated", p.getUpdated().get());
+			count(registry, "rows", node, p.getName(), "skipped", p.getSkipped().get());
+			count(registry, "rows", node, p.getName(), "deleted", p.getDeleted().get());
+		});
+	}
+
+	private static void count(final MeterRegistry registry, final String name, final String node, final String phase, final String action,
+			final long amount) {
+		if (amount > 0) {
+			final var builder = Counter.builder(PREFIX + "." + name).tag("node", node).tag("phase", phase);
+			if (action != null) {
+				builder.tag("action", action);
+			}
+			builder.register(registry).increment(amount);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+/**
+ * Numeric value extractor of the OVH price feed attributes such as <code>7 GB</code>, <code>2 vCores</code>,
+ * <code>0.0123/hour</code> or <code>1,120</code>. The value is read in a single pass without regular expression nor
+ * intermediate string. The number must be a single token: the surrounding text, units and spaces (including
+ * non-breaking ones) are ignored, and <code>,</code> is only accepted as digit group separator.
+ */
+public final class OvhNumberParser {
+
+	/**
+	 * Exactly representable powers of ten.
+	 */
+	private static final double[] POW10 = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+			1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Largest mantissa converted without rounding.
+	 */
+	private static final long MAX_MANTISSA = 1L << 53;
+
+	private OvhNumberParser() {
+		// Utility class
+	}
+
+	/**
+	 * Return the numeric value of an OVH attribute.
+	 *
+	 * @param value The raw attribute value.
+	 * @return The numeric value.
+	 * @throws IllegalArgumentException When the value is <code>null</code>, has no digit or several numbers.
+	 */
+	public static double parse(final String value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Missing OVH numeric value");
+		}
+		final var length = value.length();
+		var mantissa = 0L;
+		var scale = 0;
+		var digits = 0;
+		var decimal = false;
+		var negative = false;
+		var ended = false;
+		for (var i = 0; i < length; i++) {
+			final var c = value.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (ended) {
+					throw invalid(value);
+				}
+				mantissa = mantissa * 10 + c - '0';
+				digits++;
+				if (decimal) {
+					scale++;
+				}
+				if (mantissa >= MAX_MANTISSA) {
+					return parseSlow(value);
+				}
+			} else if (digits > 0 && !ended && isSeparator(value, c, i, decimal)) {
+				if (c == '.') {
+					decimal = true;
+				}
+			} else if (c == '.' && digits == 0 && isDigit(value, i + 1)) {
+				// Leading decimal point such as ".5"
+				decimal = true;
+			} else if (c == '-' && digits == 0 && !decimal && isDigit(value, i + 1)) {
+				negative = true;
+			} else if (digits > 0) {
+				// End of the number, only text is accepted from now
+				ended = true;
+			}
+		}
+		if (digits == 0) {
+			throw invalid(value);
+		}
+		if (scale >= POW10.length) {
+			return parseSlow(value);
+		}
+		// Correctly rounded since both operands are exact
+		final var result = mantissa / POW10[scale];
+		return negative ? -result : result;
+	}
+
+	/**
+	 * Indicate the character continues the current number: a decimal point or a digit group separator followed by a
+	 * digit.
+	 */
+	private static boolean isSeparator(final String value, final char c, final int index, final boolean decimal) {
+		if (c == '.') {
+			if (decimal && isDigit(value, index + 1)) {
+				// Second decimal point
+				throw invalid(value);
+			}
+			return !decimal && isDigit(value, index + 1);
+		}
+		return c == ',' && !decimal && isDigit(value, index + 1);
+	}
+
+	private static boolean isDigit(final String value, final int index) {
+		return index < value.length() && value.charAt(index) >= '0' && value.charAt(index) <= '9';
+	}
+
+	/**
+	 * Conversion of the numbers exceeding the exact fast path.
+	 */
+	private static double parseSlow(final String value) {
+		final var buffer = new StringBuilder(value.length());
+		for (var i = 0; i < value.length(); i++) {
+			final var c = value.charAt(i);
+			if (c >= '0' && c <= '9' || (c == '.' || c == '-' && buffer.length() == 0) && isDigit(value, i + 1)) {
+				buffer.append(c);
+			} else if (c != ',' && buffer.length() > 0) {
+				break;
+			}
+		}
+		return Double.parseDouble(buffer.toString());
+	}
+
+	private static IllegalArgumentException invalid(final String value) {
+		return new IllegalArgumentException("Invalid OVH numeric value '" + value + "'");
+	}
+}
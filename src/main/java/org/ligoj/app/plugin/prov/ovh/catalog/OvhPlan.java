@@ -0,0 +1,64 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Specifications of an OVH plan, shared by all its regional prices. The numeric values are {@link Double#NaN} when
+ * not provided by the plan.
+ */
+@Getter
+@Setter
+public class OvhPlan {
+
+	private String planCode;
+
+	private OvhPlanCategory category;
+
+	private String name;
+
+	/**
+	 * vCPU count.
+	 */
+	private double cpu = Double.NaN;
+
+	/**
+	 * RAM in MiB.
+	 */
+	private double ram = Double.NaN;
+
+	private String gpu;
+
+	private String storage;
+
+	private String nvme;
+
+	private String publicNetwork;
+
+	private String privateNetwork;
+
+	private String dedicatedNode;
+
+	/**
+	 * Unit price, such as the GB price of a storage.
+	 */
+	private double price = Double.NaN;
+
+	/**
+	 * Database engine, such as <code>mysql</code>.
+	 */
+	private String engine;
+
+	/**
+	 * Database service level, such as <code>business</code>.
+	 */
+	private String databasePlan;
+
+	/**
+	 * Database flavor, such as <code>db1-7</code>.
+	 */
+	private String flavor;
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+/**
+ * Catalog bucket of an OVH plan.
+ */
+public enum OvhPlanCategory {
+
+	/**
+	 * Compute instance, see {@link OvhAllPrices#getInstances()}.
+	 */
+	INSTANCE,
+
+	/**
+	 * Managed database, see {@link OvhAllPrices#getDatabases()}.
+	 */
+	DATABASE,
+
+	/**
+	 * Object storage, see {@link OvhAllPrices#getStorage()}.
+	 */
+	STORAGE,
+
+	/**
+	 * Cold archive and its bandwidth, see {@link OvhAllPrices#getArchive()}.
+	 */
+	ARCHIVE,
+
+	/**
+	 * Block storage, see {@link OvhAllPrices#getVolumes()}.
+	 */
+	VOLUME,
+
+	/**
+	 * Instance snapshot, see {@link OvhAllPrices#getSnapshots()}.
+	 */
+	SNAPSHOT
+}
@@ -0,0 +1,85 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.core.io.ClassPathResource;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Plan code classifier: the longest matching family prefix is resolved in a single pass over the plan code with a
+ * prefix trie. The families are data, see <code>ovh/plan-families.json</code>.
+ */
+public class OvhPlanClassifier {
+
+	/**
+	 * Default families resource.
+	 */
+	public static final String FAMILIES = "ovh/plan-families.json";
+
+	private static final class Node {
+		private final Map<Character, Node> children = new HashMap<>();
+		private OvhPlanFamily family;
+	}
+
+	private final Node root = new Node();
+
+	/**
+	 * Build a classifier from the given families.
+	 *
+	 * @param families The plan families.
+	 */
+	public OvhPlanClassifier(final List<OvhPlanFamily> families) {
+		families.forEach(f -> {
+			var node = root;
+			for (final var c : f.getPrefix().toCharArray()) {
+				node = node.children.computeIfAbsent(c, k -> new Node());
+			}
+			node.family = f;
+		});
+	}
+
+	/**
+	 * Build a classifier from a JSON resource.
+	 *
+	 * @param objectMapper The JSON mapper.
+	 * @param resource     The class-path resource holding the family list.
+	 * @return The new classifier.
+	 * @throws IOException When the resource cannot be read.
+	 */
+	public static OvhPlanClassifier load(final ObjectMapper objectMapper, final String resource) throws IOException {
+		try (var input = new ClassPathResource(resource).getInputStream()) {
+			return new OvhPlanClassifier(objectMapper.readValue(input, new TypeReference<List<OvhPlanFamily>>() {
+				// Nothing to override
+			}));
+		}
+	}
+
+	/**
+	 * Return the family of the given plan code.
+	 *
+	 * @param planCode The plan code.
+	 * @return The family having the longest matching prefix. <code>null</code> when the plan is not supported.
+	 */
+	public OvhPlanFamily classify(final String planCode) {
+		var node = root;
+		var family = root.family;
+		for (var i = 0; i < planCode.length(); i++) {
+			node = node.children.get(planCode.charAt(i));
+			if (node == null) {
+				break;
+			}
+			if (node.family != null) {
+				family = node.family;
+			}
+		}
+		return family;
+	}
+}
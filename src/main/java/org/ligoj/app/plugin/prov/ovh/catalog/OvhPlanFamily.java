@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * A family of OVH plans sharing a plan code prefix, a category and the layouts of their attributes.
+ */
+@Getter
+@Setter
+public class OvhPlanFamily {
+
+	/**
+	 * Plan code prefix such as <code>b2-</code> or <code>databases.</code>.
+	 */
+	private String prefix;
+
+	private OvhPlanCategory category;
+
+	/**
+	 * Candidate layouts, the first accepted one is used.
+	 */
+	private List<OvhPlanLayout> layouts = new ArrayList<>();
+
+	/**
+	 * Return the layout of the given plan.
+	 *
+	 * @param plan The plan attributes.
+	 * @return The first accepted layout. <code>null</code> when the plan is not supported.
+	 */
+	public OvhPlanLayout getLayout(final Map<String, String> plan) {
+		for (final var layout : layouts) {
+			if (layout.accept(plan)) {
+				return layout;
+			}
+		}
+		return null;
+	}
+}
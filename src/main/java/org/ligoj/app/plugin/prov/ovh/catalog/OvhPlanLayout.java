@@ -0,0 +1,68 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Map;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Position of the specifications among the <code>attr-N</code> properties of an OVH plan. A negative position means
+ * the specification is not provided by the plan.
+ */
+@Getter
+@Setter
+public class OvhPlanLayout {
+
+	/**
+	 * Attribute names by position, avoids the concatenation for each lookup.
+	 */
+	private static final String[] ATTRIBUTES = { "attr-0", "attr-1", "attr-2", "attr-3", "attr-4", "attr-5", "attr-6",
+			"attr-7", "attr-8", "attr-9" };
+
+	/**
+	 * Attribute that must be defined to select this layout. When negative, the layout is always selected.
+	 */
+	private int when = -1;
+
+	private int ram = -1;
+
+	private int cpu = -1;
+
+	private int gpu = -1;
+
+	private int storage = -1;
+
+	private int nvme = -1;
+
+	private int publicNetwork = -1;
+
+	private int privateNetwork = -1;
+
+	private int dedicatedNode = -1;
+
+	private int price = -1;
+
+	/**
+	 * Indicate this layout applies to the given plan.
+	 *
+	 * @param plan The plan attributes.
+	 * @return <code>true</code> when the required attribute is defined.
+	 */
+	public boolean accept(final Map<String, String> plan) {
+		return when < 0 || plan.get(ATTRIBUTES[when]) != null;
+	}
+
+	/**
+	 * Return the value of the attribute at the given position.
+	 *
+	 * @param plan     The plan attributes.
+	 * @param position The attribute position. May be negative.
+	 * @return The attribute value. <code>null</code> when the position is negative or the attribute is not defined.
+	 */
+	public static String get(final Map<String, String> plan, final int position) {
+		return position < 0 ? null : plan.get(ATTRIBUTES[position]);
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Regional prices of a category stored by column: a row is a plan available in a region. The plans and the regions
+ * are identifiers of the {@link OvhAllPrices} dictionaries, and each {@link OvhPriceKey} has its own primitive column
+ * where {@link Double#NaN} means the price is not provided.
+ */
+public class OvhPriceColumns {
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private int size;
+
+	private int[] plans = new int[INITIAL_CAPACITY];
+
+	private int[] regions = new int[INITIAL_CAPACITY];
+
+	private final double[][] costs = new double[OvhPriceKey.VALUES.length][INITIAL_CAPACITY];
+
+	/**
+	 * Add a row.
+	 *
+	 * @param plan          The plan identifier.
+	 * @param region        The region identifier.
+	 * @param regionalPrice The regional price properties.
+	 * @return The new row index.
+	 */
+	public int add(final int plan, final int region, final Map<String, String> regionalPrice) {
+		if (size == plans.length) {
+			grow();
+		}
+		plans[size] = plan;
+		regions[size] = region;
+		for (final var key : OvhPriceKey.VALUES) {
+			costs[key.ordinal()][size] = key.read(regionalPrice);
+		}
+		return size++;
+	}
+
+	/**
+	 * Add a row with the prices of a row of another category.
+	 *
+	 * @param plan   The plan identifier.
+	 * @param region The region identifier.
+	 * @param source The columns of the copied row.
+	 * @param row    The copied row index.
+	 * @return The new row index.
+	 */
+	public int add(final int plan, final int region, final OvhPriceColumns source, final int row) {
+		if (size == plans.length) {
+			grow();
+		}
+		plans[size] = plan;
+		regions[size] = region;
+		for (final var key : OvhPriceKey.VALUES) {
+			costs[key.ordinal()][size] = source.getCost(key, row);
+		}
+		return size++;
+	}
+
+	private void grow() {
+		final var capacity = plans.length * 2;
+		plans = Arrays.copyOf(plans, capacity);
+		regions = Arrays.copyOf(regions, capacity);
+		for (var i = 0; i < costs.length; i++) {
+			costs[i] = Arrays.copyOf(costs[i], capacity);
+		}
+	}
+
+	/**
+	 * Return the amount of rows.
+	 *
+	 * @return The amount of rows.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Indicate there is no row.
+	 *
+	 * @return <code>true</code> when there is no row.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Return the plan of a row.
+	 *
+	 * @param row The row index.
+	 * @return The plan identifier, see {@link OvhAllPrices#getPlan(int)}.
+	 */
+	public int getPlan(final int row) {
+		return plans[row];
+	}
+
+	/**
+	 * Return the region of a row.
+	 *
+	 * @param row The row index.
+	 * @return The region identifier, see {@link OvhAllPrices#getRegion(int)}.
+	 */
+	public int getRegion(final int row) {
+		return regions[row];
+	}
+
+	/**
+	 * Return a price of a row.
+	 *
+	 * @param key The price key.
+	 * @param row The row index.
+	 * @return The price, or {@link Double#NaN} when not provided.
+	 */
+	public double getCost(final OvhPriceKey key, final int row) {
+		return costs[key.ordinal()][row];
+	}
+}
@@ -4,20 +4,56 @@
 package org.ligoj.app.plugin.prov.ovh.catalog;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.EnumUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Session;
 import org.ligoj.app.plugin.prov.catalog.AbstractImportCatalogResource;
 import org.ligoj.app.plugin.prov.catalog.AbstractUpdateContext;
+import org.ligoj.app.plugin.prov.model.AbstractInstanceType;
 import org.ligoj.app.plugin.prov.model.AbstractPrice;
 import org.ligoj.app.plugin.prov.model.ImportCatalogStatus;
 import org.ligoj.app.plugin.prov.model.ProvDatabasePrice;
@@ -26,6 +62,10 @@ import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 import org.ligoj.app.plugin.prov.model.ProvInstancePriceTerm;
 import org.ligoj.app.plugin.prov.model.ProvInstanceType;
 import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.app.plugin.prov.model.ProvQuoteDatabase;
+import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
+import org.ligoj.app.plugin.prov.model.ProvQuoteStorage;
+import org.ligoj.app.plugin.prov.model.ProvQuoteSupport;
 import org.ligoj.app.plugin.prov.model.ProvStorageOptimized;
 import org.ligoj.app.plugin.prov.model.ProvStoragePrice;
 import org.ligoj.app.plugin.prov.model.ProvStorageType;
@@ -36,11 +76,21 @@ import org.ligoj.app.plugin.prov.model.Rate;
 import org.ligoj.app.plugin.prov.model.VmOs;
 import org.ligoj.app.plugin.prov.ovh.ProvOvhPluginResource;
 import org.ligoj.bootstrap.core.INamableBean;
-import org.ligoj.bootstrap.core.curl.CurlProcessor;
+import org.ligoj.bootstrap.core.dao.RestRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ClassUtils;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
 
+import lombok.Getter;
 import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 
@@ -57,11 +107,14 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 
 	@Override
 	protected int getWorkload(final ImportCatalogStatus status) {
-		return 6; // TODO init + get catalog + vm + db + support+storage
+		// initialize + retrieve-catalog + vm + database + storage + support + done
+		return 7;
 	}
 
 	/**
-	 * Configuration key used for URL prices.
+	 * Configuration key used for URL prices: the base URL of {@value #OVH_PRICES_PATH}, or the full URL of a JSON or a
+	 * gzip compressed JSON price feed. Local feeds are supported with the <code>file:</code> and <code>classpath:</code>
+	 * schemes.
 	 */
 	public static final String CONF_API_PRICES = ProvOvhPluginResource.KEY + ":prices-url";
 
@@ -94,6 +147,94 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 	 */
 	public static final String CONF_FLAVOR = ProvOvhPluginResource.KEY + ":flavor";
 
+	/**
+	 * Configuration key used for the amount of modified instance prices flushed together, also the JDBC batch size of
+	 * the import sessions.
+	 */
+	public static final String CONF_BATCH_SIZE = ProvOvhPluginResource.KEY + ":batch-size";
+
+	/**
+	 * Default amount of modified instance prices flushed together.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	/**
+	 * Configuration key used for the amount of types whose previous prices are kept in memory, see
+	 * {@link OvhPriceLookup}.
+	 */
+	public static final String CONF_LOOKUP_WINDOW = ProvOvhPluginResource.KEY + ":lookup-window";
+
+	/**
+	 * Default amount of types whose previous prices are kept in memory.
+	 */
+	public static final int DEFAULT_LOOKUP_WINDOW = 64;
+
+	/**
+	 * Configuration key used for the directory holding the last downloaded catalog and its HTTP validators.
+	 */
+	public static final String CONF_CACHE_DIR = ProvOvhPluginResource.KEY + ":cache-dir";
+
+	/**
+	 * Configuration key suffix used to store the digest of the last successfully imported catalog of a node.
+	 */
+	public static final String CONF_DIGEST = ":catalog-digest";
+
+	/**
+	 * Configuration key used for the import mode, see {@link OvhImportMode}. Default is serial.
+	 */
+	public static final String CONF_MODE = ProvOvhPluginResource.KEY + ":import-mode";
+
+	/**
+	 * Configuration key used for the maximal amount of parsed rows waiting for their installation in the pipelined
+	 * mode.
+	 */
+	public static final String CONF_PIPELINE_CAPACITY = ProvOvhPluginResource.KEY + ":pipeline-capacity";
+
+	/**
+	 * Default maximal amount of parsed rows waiting for their installation in the pipelined mode.
+	 */
+	public static final int DEFAULT_PIPELINE_CAPACITY = 1000;
+
+	/**
+	 * Configuration key used for the maximal amount of regions installed at the same time in the region-sharded mode.
+	 */
+	public static final String CONF_REGION_WORKERS = ProvOvhPluginResource.KEY + ":region-workers";
+
+	/**
+	 * Default maximal amount of regions installed at the same time in the region-sharded mode.
+	 */
+	public static final int DEFAULT_REGION_WORKERS = 4;
+
+	/**
+	 * Configuration key used for the catalog engine, see {@link OvhCatalogEngine}. Default is <code>feed</code>.
+	 */
+	public static final String CONF_CATALOG_ENGINE = ProvOvhPluginResource.KEY + ":catalog-engine";
+
+	/**
+	 * Configuration key used for the maximal amount of concurrent catalog downloads.
+	 */
+	public static final String CONF_FETCH_CONCURRENCY = ProvOvhPluginResource.KEY + ":fetch-concurrency";
+
+	/**
+	 * Configuration key used for the timeout of each catalog download, in seconds.
+	 */
+	public static final String CONF_FETCH_TIMEOUT = ProvOvhPluginResource.KEY + ":fetch-timeout";
+
+	/**
+	 * Configuration key used for the amount of retries of a failed catalog download.
+	 */
+	public static final String CONF_FETCH_RETRIES = ProvOvhPluginResource.KEY + ":fetch-retries";
+
+	/**
+	 * Hourly price term code.
+	 */
+	private static final String TERM_HOURLY = "consumption";
+
+	/**
+	 * Monthly price term code.
+	 */
+	private static final String TERM_MONTHLY = "monthly.postpaid";
+
 	/**
 	 * <code>
 	 * (curl -s https://www.ovhcloud.com/en/public-cloud/prices/; curl -s https://us.ovhcloud.com/public-cloud/prices/) \
@@ -129,6 +270,19 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 	 */
 	public static final String OVH_PRICES_PATH = "/price.json";
 
+	private static final String CLASSPATH_PREFIX = "classpath:";
+
+	private static final String SUPPORT_TYPES = "csv/ovh-prov-support-type.csv";
+
+	private static final String SUPPORT_PRICES = "csv/ovh-prov-support-price.csv";
+
+	private static final String REGIONS = "ovh/regions.json";
+
+	/**
+	 * Bundled resources read by the import. Their content is part of the catalog digest.
+	 */
+	private static final List<String> DIGEST_RESOURCES = List.of(SUPPORT_TYPES, SUPPORT_PRICES, REGIONS, OvhPlanClassifier.FAMILIES);
+
 	/**
 	 * Default pricing URL.
 	 */
@@ -138,11 +292,38 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 		// Nothing to extend
 	};
 
-	private static final TypeReference<List<Map<String, Object>>> DATABASE_LIST2 = new TypeReference<>() {
+	/**
+	 * Maximal amount of stale prices removed by a single statement.
+	 */
+	private static final int RETIRE_CHUNK = 10000;
 
-		// Nothing to extend
+	/**
+	 * Counter of the region worker threads, used to name them.
+	 */
+	private static final AtomicInteger REGION_THREADS = new AtomicInteger();
 
-	};
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager em;
+
+	/**
+	 * Source of the price feed replacing the configured one, <code>null</code> by default.
+	 */
+	private OvhCatalogSource catalogSource;
+
+	/**
+	 * Metrics of the last import, <code>null</code> before the first import.
+	 */
+	@Getter
+	private volatile OvhImportMetrics lastMetrics;
+
+	/**
+	 * Shared HTTP client used to stream the remote catalog. The default proxy selector is used.
+	 */
+	private final HttpClient httpClient = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL)
+			.connectTimeout(OvhCatalogFetcher.DEFAULT_TIMEOUT).build();
 
 	/**
 	 * Install or update prices.
@@ -151,49 +332,532 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 	 * @throws IOException When CSV or XML files cannot be read.
 	 */
 	public void install(final boolean force) throws IOException {
-		final var context = initContext(new UpdateContext(), ProvOvhPluginResource.KEY, force);
+		final var context = newContext(force);
 		final var node = context.getNode();
-
-		// Get previous data
+		context.setReporting(true);
 		nextStep(context, "initialize");
+
+		// Fetch the remote prices stream and build the prices object
+		nextStep(context, "retrieve-catalog");
+		final var cache = newCatalogCache(getApiPriceUrl());
+		final var digestKey = node.getId() + CONF_DIGEST;
+		final var source = newCatalogSource(cache, configuration.get(digestKey));
+		final var endpoints = new ArrayList<OvhCatalogCache>();
+		final var mode = EnumUtils.getEnumIgnoreCase(OvhImportMode.class, configuration.get(CONF_MODE), OvhImportMode.SERIAL);
+		final var pipelined = mode == OvhImportMode.PIPELINE && !isStructuredEngine();
+		if (mode == OvhImportMode.PIPELINE && !pipelined) {
+			log.warn("OVH catalog: the pipeline mode is not available with the structured engine, the serial mode is used");
+		}
+		final var prices = pipelined ? installPipelined(context, source, cache, digestKey, mode) : getCatalog(context, source, endpoints);
+		final String digest = prices == null ? null : getDigest(context, prices.getDigest(), mode);
+		if (prices == null || !force && digest.equals(configuration.get(digestKey))) {
+			// Remote catalog has not changed since the last successful import
+			nextStep(context, "unchanged");
+			report(context);
+			return;
+		}
+
+		if (pipelined) {
+			// The instances and the databases are already installed while parsed
+			nextStep(context, "install-vm-storage");
+			timed(context, OvhImportMetrics.STORAGE, () -> installStoragePrices(context, prices));
+			nextStep(context, "install-support");
+			timed(context, OvhImportMetrics.SUPPORT, () -> installSupportPrices(context));
+			nextStep(context, "support", null, 1);
+		} else if (mode == OvhImportMode.PARALLEL) {
+			usePreviousSnapshot(context, cache, digestKey);
+			installParallel(context, prices);
+		} else if (mode == OvhImportMode.REGION) {
+			usePreviousSnapshot(context, cache, digestKey);
+			installSharded(context, prices);
+			nextStep(context, "install-support");
+			timed(context, OvhImportMetrics.SUPPORT, () -> installSupportPrices(context));
+			nextStep(context, "support", null, 1);
+		} else {
+			usePreviousSnapshot(context, cache, digestKey);
+			loadCommon(context);
+			nextStep(context, "install-vm");
+			timed(context, OvhImportMetrics.VM, () -> installInstancePrices(context, prices));
+			nextStep(context, "install-database");
+			timed(context, OvhImportMetrics.DATABASE, () -> installDatabasePrices(context, prices));
+			nextStep(context, "install-vm-storage");
+			timed(context, OvhImportMetrics.STORAGE, () -> installStoragePrices(context, prices));
+			nextStep(context, "install-support");
+			timed(context, OvhImportMetrics.SUPPORT, () -> installSupportPrices(context));
+			nextStep(context, "support", null, 1);
+		}
+		timed(context, OvhImportMetrics.RETIRE, () -> retirePrices(context));
+
+		if (context.isDelta()) {
+			log.info("OVH catalog delta import: {} prices, {} removed from the catalog", context.getSnapshot().size(),
+					context.getPreviousSnapshot().getRemoved(context.getSnapshot()).size());
+		}
+
+		// The imported snapshot is now the reference of the next conditional download and the next delta import
+		context.getSnapshot().setDigest(digest);
+		context.getSnapshot().save(cache.getPriceSnapshot());
+		source.commit();
+		for (final var endpoint : endpoints) {
+			endpoint.commit();
+		}
+		configuration.put(digestKey, digest);
+		report(context);
+	}
+
+	/**
+	 * Reuse the prices of the previous import when it is the last successful one.
+	 */
+	private void usePreviousSnapshot(final UpdateContext context, final OvhCatalogCache cache, final String digestKey) throws IOException {
+		final var previousSnapshot = context.isForce() ? new OvhPriceSnapshot() : OvhPriceSnapshot.load(cache.getPriceSnapshot());
+		if (previousSnapshot.getDigest() != null && previousSnapshot.getDigest().equals(configuration.get(digestKey))) {
+			context.setPreviousSnapshot(previousSnapshot);
+		}
+	}
+
+	/**
+	 * Parse the price feed in a background thread while the instance and the database prices are installed in the
+	 * caller thread and transaction, as soon as they are parsed. The parser is blocked when the bounded queue is full,
+	 * so the amount of parsed but not installed rows is capped. An unchanged feed is detected by a first pass computing
+	 * its digest, before any installation.
+	 *
+	 * @return The parsed prices, or <code>null</code> when the feed is not modified and the update is not forced.
+	 */
+	private OvhAllPrices installPipelined(final UpdateContext context, final OvhCatalogSource source, final OvhCatalogCache cache,
+			final String digestKey, final OvhImportMode mode) throws IOException {
+		final var input = openChangedPrices(context, source, digestKey, mode);
+		if (input == null) {
+			return null;
+		}
+		usePreviousSnapshot(context, cache, digestKey);
+		loadCommon(context);
+		final var queue = new ArrayBlockingQueue<OvhPriceRow>(Math.max(1, configuration.get(CONF_PIPELINE_CAPACITY, DEFAULT_PIPELINE_CAPACITY)));
+		final var executor = Executors.newSingleThreadExecutor(r -> {
+			final var thread = new Thread(r, "ovh-catalog-parse");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final OvhAllPrices prices;
+		try (input) {
+			final var parsed = executor.submit(() -> {
+				try {
+					return readPrices(input, context.getMetrics(), row -> enqueue(queue, row));
+				} finally {
+					enqueue(queue, OvhPriceRow.END);
+				}
+			});
+			nextStep(context, "install-vm");
+			installPipelined(context, queue);
+			nextStep(context, "install-database");
+			prices = parsed.get();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted catalog import", e);
+		} catch (final ExecutionException e) {
+			throw e.getCause() instanceof IOException io ? io : new IOException("Failed catalog parsing", e.getCause());
+		} finally {
+			// Release a parser blocked by a failed installation
+			executor.shutdownNow();
+		}
+		return prices;
+	}
+
+	/**
+	 * Open the price feed when it has changed since the last successful import. Unless the update is forced, the
+	 * digest of the feed is first computed without installing it, then the feed is opened again.
+	 *
+	 * @return The opened feed, or <code>null</code> when the feed is not modified and the update is not forced.
+	 */
+	private InputStream openChangedPrices(final UpdateContext context, final OvhCatalogSource source, final String digestKey,
+			final OvhImportMode mode) throws IOException {
+		final var input = openPrices(context, source, context.isForce());
+		if (input == null || context.isForce()) {
+			return input;
+		}
+		final String digest;
+		try (input) {
+			digest = getDigest(context, readDigest(input, context.getMetrics()), mode);
+		}
+		if (digest.equals(configuration.get(digestKey))) {
+			return null;
+		}
+		return source.reopen(context.getMetrics().get(OvhImportMetrics.DOWNLOAD));
+	}
+
+	/**
+	 * Add a parsed row to the queue, waiting for a free slot.
+	 */
+	private static void enqueue(final BlockingQueue<OvhPriceRow> queue, final OvhPriceRow row) {
+		try {
+			queue.put(row);
+		} catch (final InterruptedException e) {
+			// The installation has failed
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Cancelled catalog parsing");
+		}
+	}
+
+	/**
+	 * Install the instance and the database rows as they are parsed, until the end of the feed.
+	 */
+	private void installPipelined(final UpdateContext context, final BlockingQueue<OvhPriceRow> queue) throws InterruptedException {
+		prepareInstancePrices(context);
+		prepareDatabasePrices(context);
+		final var hourlyTerm = installPriceTerm(context, TERM_HOURLY, 0);
+		final var monthlyTerm = installPriceTerm(context, TERM_MONTHLY, 1);
+		final var databaseTypes = new IdentityHashMap<OvhPlan, ProvDatabaseType>();
+		final var vm = context.getMetrics().get(OvhImportMetrics.VM);
+		final var database = context.getMetrics().get(OvhImportMetrics.DATABASE);
+		for (var row = queue.take(); row != OvhPriceRow.END; row = queue.take()) {
+			final var start = System.nanoTime();
+			final var price = row;
+			if (row.getCategory() == OvhPlanCategory.INSTANCE) {
+				if (isEnabledRegion(context, row.getRegion())) {
+					installInstancePrice(context, row.getPlan(), row.getRegion(), price::getCost, hourlyTerm, monthlyTerm);
+				}
+				vm.stop(start);
+			} else if (row.getCategory() == OvhPlanCategory.DATABASE) {
+				installDatabasePrice(context, row.getPlan(), row.getRegion(), price::getCost, databaseTypes, hourlyTerm, monthlyTerm);
+				database.stop(start);
+			}
+		}
+		flushInstancePrices(context);
+	}
+
+	/**
+	 * Run a step and add its elapsed time to a phase.
+	 */
+	private void timed(final UpdateContext context, final String phase, final Work work) throws IOException {
+		final var start = System.nanoTime();
+		try {
+			work.execute();
+		} finally {
+			context.getMetrics().get(phase).stop(start);
+		}
+	}
+
+	/**
+	 * Report the progress of the current step, about every tenth of its rows. Only the main import context reports
+	 * its progress, in the location of the status.
+	 */
+	private void progress(final UpdateContext context, final String phase, final int done, final int total) {
+		if (context.isReporting() && done > 0 && done % Math.max(1, total / 10) == 0) {
+			nextStep(context, phase, done + "/" + total, 0);
+		}
+	}
+
+	/**
+	 * Log the metrics of the import, and publish them to Micrometer when available.
+	 */
+	private void report(final UpdateContext context) {
+		final var metrics = context.getMetrics();
+		metrics.getPhases().forEach(p -> log.info("OVH catalog {}", p));
+		if (ClassUtils.isPresent("io.micrometer.core.instrument.Metrics", getClass().getClassLoader())) {
+			OvhMetricsPublisher.publish(context.getNode().getId(), metrics);
+		}
+		lastMetrics = metrics;
+	}
+
+	/**
+	 * Return a new update context with the configured filters.
+	 */
+	private UpdateContext newContext(final boolean force) {
+		return newContext(new UpdateContext(), force);
+	}
+
+	/**
+	 * Initialize an update context with the configured filters.
+	 */
+	private <T extends UpdateContext> T newContext(final T newContext, final boolean force) {
+		final var context = initContext(newContext, ProvOvhPluginResource.KEY, force);
 		context.setValidOs(Pattern.compile(configuration.get(CONF_OS, ".*"), Pattern.CASE_INSENSITIVE));
 		context.setValidDatabaseType(Pattern.compile(configuration.get(CONF_DTYPE, ".*"), Pattern.CASE_INSENSITIVE));
 		context.setValidDatabaseEngine(Pattern.compile(configuration.get(CONF_ENGINE, "(mysql|postgresql)"), Pattern.CASE_INSENSITIVE));
 		context.setValidInstanceType(Pattern.compile(configuration.get(CONF_ITYPE, ".*"), Pattern.CASE_INSENSITIVE));
 		context.setValidRegion(Pattern.compile(configuration.get(CONF_REGIONS, ".*")));
+		context.setBatchSize(Math.max(1, configuration.get(CONF_BATCH_SIZE, DEFAULT_BATCH_SIZE)));
+		context.setLookupWindow(configuration.get(CONF_LOOKUP_WINDOW, DEFAULT_LOOKUP_WINDOW));
+		return context;
+	}
 
-		// Add all regional DC
-		final var regionData = toMap("ovh/regions.json", MAP_LOCATION);
-		context.getMapRegionById().putAll(regionData);
-		context.setInstanceTypes(itRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvInstanceType::getCode, Function.identity())));
-		context.setDatabaseTypes(dtRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvDatabaseType::getCode, Function.identity())));
-		context.setPriceTerms(iptRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvInstancePriceTerm::getCode, Function.identity())));
-		context.setStorageTypes(stRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvStorageType::getCode, Function.identity())));
-		context.setPreviousStorage(
-				spRepository.findAllBy("type.node", node).stream().collect(Collectors.toMap(ProvStoragePrice::getCode, Function.identity())));
-		context.setSupportTypes(st2Repository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvSupportType::getName, Function.identity())));
-		context.setPreviousSupport(
-				sp2Repository.findAllBy("type.node", node).stream().collect(Collectors.toMap(ProvSupportPrice::getCode, Function.identity())));
-		context.setRegions(locationRepository.findAllBy(BY_NODE, context.getNode()).stream().filter(r -> isEnabledRegion(context, r))
+	/**
+	 * Load the previous data shared by all sections: regional DC, locations and price terms.
+	 */
+	private void loadCommon(final UpdateContext context) throws IOException {
+		final var node = context.getNode();
+		context.getMapRegionById().putAll(toMap(REGIONS, MAP_LOCATION));
+		context.setRegions(locationRepository.findAllBy(BY_NODE, node).stream().filter(r -> isEnabledRegion(context, r))
 				.collect(Collectors.toMap(INamableBean::getName, Function.identity())));
-		context.setPrevious(ipRepository.findAllBy("term.node", node).stream().collect(Collectors.toMap(ProvInstancePrice::getCode, Function.identity())));
+		context.setPriceTerms(iptRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvInstancePriceTerm::getCode, Function.identity())));
+	}
 
-		// Fetch the remote prices stream and build the prices object
-		nextStep(context, "retrieve-catalog");
+	/**
+	 * Install the VM, database, storage and support sections at the same time. The shared price terms and locations
+	 * are installed and committed first. Then each section runs in its own thread, transaction and update context, so
+	 * no entity nor map is shared between sections. A failed section does not roll back the completed ones.
+	 */
+	private void installParallel(final UpdateContext context, final OvhAllPrices prices) throws IOException {
+		final var force = context.isForce();
+		inNewTransaction(() -> {
+			final var shared = newContext(force);
+			loadCommon(shared);
+			installPriceTerm(shared, TERM_HOURLY, 0);
+			installPriceTerm(shared, TERM_MONTHLY, 1);
+			getInstalledRegions(shared, prices).forEach(r -> installLocation(shared, r));
+		});
+
+		final var sections = new LinkedHashMap<String, Section>();
+		sections.put("install-vm", c -> timed(c, OvhImportMetrics.VM, () -> installInstancePrices(c, prices)));
+		sections.put("install-database", c -> timed(c, OvhImportMetrics.DATABASE, () -> installDatabasePrices(c, prices)));
+		sections.put("install-vm-storage", c -> timed(c, OvhImportMetrics.STORAGE, () -> installStoragePrices(c, prices)));
+		sections.put("install-support", c -> timed(c, OvhImportMetrics.SUPPORT, () -> installSupportPrices(c)));
+		final var executor = Executors.newFixedThreadPool(sections.size());
+		try {
+			final var completion = new ExecutorCompletionService<String>(executor);
+			sections.forEach((phase, section) -> completion.submit(() -> {
+				inNewTransaction(() -> {
+					final var sectionContext = newContext(force);
+					sectionContext.setPreviousSnapshot(context.getPreviousSnapshot());
+					sectionContext.setSnapshot(context.getSnapshot());
+					sectionContext.setInstalledCodes(context.getInstalledCodes());
+					sectionContext.setMetrics(context.getMetrics());
+					loadCommon(sectionContext);
+					section.install(sectionContext);
+				});
+				return phase;
+			}));
+
+			// Report the progress as the sections complete
+			for (var i = 0; i < sections.size(); i++) {
+				nextStep(context, completion.take().get());
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted catalog import", e);
+		} catch (final ExecutionException e) {
+			throw new IOException("Failed catalog import section", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Install the prices of the global regions at the same time. The types, terms and locations are installed and
+	 * committed first, so the regions only share committed entities through a {@link ConcurrentUpdateContext}. Each
+	 * region runs in its own thread and transaction. A failed region does not roll back the completed ones, but the
+	 * import fails before any price is retired.
+	 */
+	private void installSharded(final UpdateContext context, final OvhAllPrices prices) throws IOException {
+		final var shared = newContext(new ConcurrentUpdateContext(), context.isForce());
+		shared.setPreviousSnapshot(context.getPreviousSnapshot());
+		shared.setSnapshot(context.getSnapshot());
+		shared.setInstalledCodes(context.getInstalledCodes());
+		shared.setMetrics(context.getMetrics());
+		shared.setSharded(true);
+		nextStep(context, "install-types");
+		timed(context, OvhImportMetrics.TYPES, () -> inNewTransaction(() -> installSharedTypes(shared, prices)));
+
+		nextStep(context, "install-regions");
+		final var shards = prices.shardByRegion();
+		final var failures = new ConcurrentSkipListMap<String, Exception>();
+		final var workers = Math.min(shards.size(), configuration.get(CONF_REGION_WORKERS, DEFAULT_REGION_WORKERS));
+		final var executor = Executors.newFixedThreadPool(Math.max(1, workers), r -> {
+			final var thread = new Thread(r, "ovh-catalog-region-" + REGION_THREADS.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		try {
+			final var completion = new ExecutorCompletionService<String>(executor);
+			shards.forEach((region, shard) -> completion.submit(() -> {
+				final var phase = OvhImportMetrics.REGION + region;
+				shared.getMetrics().get(phase).getItems().addAndGet(shard.size());
+				try {
+					timed(shared, phase, () -> inNewTransaction(() -> installShard(shared, region, shard)));
+				} catch (final IOException | RuntimeException e) {
+					log.error("OVH catalog region {} failed, the other regions are kept", region, e);
+					failures.put(region, e);
+				}
+				return region;
+			}));
+
+			// Report the progress as the regions complete
+			for (var i = 0; i < shards.size(); i++) {
+				nextStep(context, "install-regions", completion.take().get(), 0);
+			}
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted catalog import", e);
+		} catch (final ExecutionException e) {
+			throw new IOException("Failed catalog import region", e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+
+		if (!failures.isEmpty()) {
+			// The prices of the failed regions are not installed, and must not be retired
+			final var e = new IOException("Failed catalog import regions: " + String.join(", ", failures.keySet()));
+			failures.values().forEach(e::addSuppressed);
+			throw e;
+		}
+		nextStep(context, "install-regions", shards.size() + "/" + shards.size(), 1);
+	}
+
+	/**
+	 * Install the types, terms and locations of the enabled prices, so a region never creates a shared entity.
+	 */
+	private void installSharedTypes(final UpdateContext context, final OvhAllPrices prices) throws IOException {
+		loadCommon(context);
+		installPriceTerm(context, TERM_HOURLY, 0);
+		installPriceTerm(context, TERM_MONTHLY, 1);
+		getInstalledRegions(context, prices).forEach(r -> installLocation(context, r));
+
+		prepareInstancePrices(context);
+		final var instances = prices.getInstances();
+		for (var i = 0; i < instances.size(); i++) {
+			final var plan = prices.getPlan(instances.getPlan(i));
+			if (isEnabledRegion(context, prices.getRegion(instances.getRegion(i))) && isEnabledType(context, plan.getPlanCode())) {
+				installInstanceType(context, plan.getName(), plan);
+			}
+		}
+
+		prepareDatabasePrices(context);
+		final var types = new IdentityHashMap<OvhPlan, ProvDatabaseType>();
+		final var databases = prices.getDatabases();
+		for (var i = 0; i < databases.size(); i++) {
+			final var plan = prices.getPlan(databases.getPlan(i));
+			if (isEnabledDatabase(context, plan, OvhAllPrices.toGlobalRegion(prices.getRegion(databases.getRegion(i))))) {
+				types.computeIfAbsent(plan, p -> installDatabaseType(context, p));
+			}
+		}
+
+		context.setStorageTypes(stRepository.findAllBy(BY_NODE, context.getNode()).stream()
+				.collect(Collectors.toMap(ProvStorageType::getCode, Function.identity())));
+		installStorageSections(prices, (columns, toCodeType, filler) -> {
+			for (var i = 0; i < columns.size(); i++) {
+				if (isEnabledRegion(context, prices.getRegion(columns.getRegion(i)))) {
+					final var plan = prices.getPlan(columns.getPlan(i));
+					installStorageType(context, toCodeType.apply(plan), filler, plan);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Install the prices of a global region within the transaction of the current thread. The types, terms and
+	 * locations are already installed, only the prices of this thread are looked up. The prices of this region are
+	 * released once installed or failed, so they are never seen by the next region of this thread.
+	 */
+	private void installShard(final UpdateContext context, final String region, final OvhAllPrices shard) throws IOException {
+		final var previous = context.getPreviousStorage();
+		try {
+			prepareInstanceLookup(context);
+			timed(context, OvhImportMetrics.VM, () -> installInstanceRows(context, shard));
+			prepareDatabaseLookup(context);
+			timed(context, OvhImportMetrics.DATABASE, () -> installDatabaseRows(context, shard));
+
+			// Only the storage prices of this region are loaded, the other ones are not shared with this transaction
+			em.createQuery("FROM ProvStoragePrice WHERE type.node.id = :node AND LOWER(code) LIKE :region", ProvStoragePrice.class)
+					.setParameter("node", context.getNode().getId()).setParameter("region", region + "%").getResultList().stream()
+					.filter(p -> isShardStorage(p.getCode(), region)).forEach(p -> previous.put(p.getCode(), p));
+			timed(context, OvhImportMetrics.STORAGE, () -> installStorageSections(shard,
+					(columns, toCodeType, filler) -> installStorage(context, shard, columns, toCodeType, filler)));
+		} finally {
+			context.clearPrices();
+			previous.keySet().removeIf(code -> isShardStorage(code, region));
+		}
+	}
 
-		// Instance(VM)
-		var hourlyTerm = installPriceTerm(context, "consumption", 0);
-		var monthlyTerm = installPriceTerm(context, "monthly.postpaid", 1);
-		final var prices = getPrices();
+	/**
+	 * Indicate a storage price code belongs to a global region.
+	 */
+	private static boolean isShardStorage(final String code, final String region) {
+		return OvhAllPrices.toGlobalRegion(StringUtils.substringBefore(code, "/")).equals(region);
+	}
 
-		installInstancePrices(context, prices, hourlyTerm, monthlyTerm);
-		installDatabasePrices(context, hourlyTerm, monthlyTerm, prices);
-		installStoragePrices(context, prices);
-		installSupportPrices(context);
+	/**
+	 * Return the enabled regions referenced by the instance, database and storage prices.
+	 */
+	private Set<String> getInstalledRegions(final UpdateContext context, final OvhAllPrices prices) {
+		final var regions = new HashSet<String>();
+		final var instances = prices.getInstances();
+		for (var i = 0; i < instances.size(); i++) {
+			if (isEnabledType(context, prices.getPlan(instances.getPlan(i)).getPlanCode())) {
+				regions.add(prices.getRegion(instances.getRegion(i)));
+			}
+		}
+		final var databases = prices.getDatabases();
+		for (var i = 0; i < databases.size(); i++) {
+			regions.add(OvhAllPrices.toGlobalRegion(prices.getRegion(databases.getRegion(i))));
+		}
+		Stream.of(prices.getSnapshots(), prices.getStorage(), prices.getVolumes(), prices.getArchive()).forEach(columns -> {
+			for (var i = 0; i < columns.size(); i++) {
+				regions.add(prices.getRegion(columns.getRegion(i)));
+			}
+		});
+		regions.removeIf(r -> !isEnabledRegion(context, r));
+		return regions;
+	}
+
+	/**
+	 * Execute a section within a new transaction, independent of the one of the caller.
+	 */
+	private void inNewTransaction(final Work work) throws IOException {
+		final var template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		try {
+			template.executeWithoutResult(s -> {
+				try {
+					work.execute();
+				} catch (final IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (final UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Return the digest of the normalized catalog combined to the engine, the mode, the filters and the hours per month
+	 * of this import, the bundled resources and the plugin version: a change of one of them invalidates the digest.
+	 */
+	private String getDigest(final UpdateContext context, final String feed, final OvhImportMode mode) throws IOException {
+		final var engine = isStructuredEngine() ? OvhCatalogEngine.STRUCTURED : OvhCatalogEngine.FEED;
+		return DigestUtils.sha256Hex(String.join("|", feed, engine.name(), mode.name(), context.getValidOs().pattern(),
+				context.getValidDatabaseType().pattern(), context.getValidDatabaseEngine().pattern(),
+				context.getValidInstanceType().pattern(), context.getValidRegion().pattern(), String.valueOf(context.getHoursMonth()),
+				getResourcesDigest(), Objects.toString(OvhPriceImport.class.getPackage().getImplementationVersion(), "")));
+	}
+
+	/**
+	 * Return the digest of the bundled resources read by the import.
+	 */
+	private static String getResourcesDigest() throws IOException {
+		final var digest = DigestUtils.getSha256Digest();
+		for (final var resource : DIGEST_RESOURCES) {
+			try (var input = new ClassPathResource(resource).getInputStream()) {
+				DigestUtils.updateDigest(digest, input);
+			}
+		}
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * An import section executed against its own update context.
+	 */
+	@FunctionalInterface
+	private interface Section {
+		void install(UpdateContext context) throws IOException;
+	}
+
+	/**
+	 * A unit of work executed within a transaction.
+	 */
+	@FunctionalInterface
+	private interface Work {
+		void execute() throws IOException;
 	}
 
 	private void installSupportPrices(final UpdateContext context) throws IOException {
-		nextStep(context, "install-support");
 		// Install previous types
 		installSupportTypes(context);
 
@@ -202,7 +866,8 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 				.collect(Collectors.toMap(AbstractPrice::getCode, Function.identity()));
 
 		// Complete the set
-		csvForBean.toBean(ProvSupportPrice.class, "csv/ovh-prov-support-price.csv").forEach(t -> {
+		csvForBean.toBean(ProvSupportPrice.class, SUPPORT_PRICES).forEach(t -> {
+			context.getInstalledCodes(ProvSupportPrice.class).add(t.getCode());
 			final var entity = previous.computeIfAbsent(t.getCode(), n -> t);
 			// Merge the support type details
 			final var price = copyAsNeeded(context, entity, s -> {
@@ -210,57 +875,169 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 				s.setMin(t.getMin());
 				s.setRate(t.getRate());
 			});
+			count(context, OvhImportMetrics.SUPPORT, price, t.getCost());
 			saveAsNeeded(context, price, t.getCost(), sp2Repository);
 		});
-		nextStep(context, "support", null, 1);
 	}
 
 	// Install instance prices
-	private void installInstancePrices(final UpdateContext context, final OvhAllPrices prices, final ProvInstancePriceTerm hourlyTerm,
-			ProvInstancePriceTerm monthlyTerm) {
+	private void installInstancePrices(final UpdateContext context, final OvhAllPrices prices) {
+		prepareInstancePrices(context);
+		installInstanceRows(context, prices);
+	}
 
-		// // For each price/region/OS/software
-		// // Install term, type and price
-		nextStep(context, "install-vm");
+	/**
+	 * Install the instance prices of the enabled regions, the instance types are installed as needed.
+	 */
+	private void installInstanceRows(final UpdateContext context, final OvhAllPrices prices) {
+		final var hourlyTerm = installPriceTerm(context, TERM_HOURLY, 0);
+		final var monthlyTerm = installPriceTerm(context, TERM_MONTHLY, 1);
+
+		// For each price/region/OS/software
+		// Install term, type and price
 		final var instances = prices.getInstances();
-		instances.stream().filter(i -> isEnabledRegion(context, i.getRegion().toLowerCase()))
-				.forEach(i -> installInstancePrice(context, i, hourlyTerm, monthlyTerm));
+		for (var i = 0; i < instances.size(); i++) {
+			final var region = prices.getRegion(instances.getRegion(i));
+			if (isEnabledRegion(context, region)) {
+				final var row = i;
+				installInstancePrice(context, prices.getPlan(instances.getPlan(i)), region, k -> instances.getCost(k, row), hourlyTerm, monthlyTerm);
+			}
+			progress(context, "install-vm", i + 1, instances.size());
+		}
+
+		// Persist the remaining modified prices
+		flushInstancePrices(context);
+	}
+
+	/**
+	 * Load the installed instance types and prepare the lookup of the installed instance prices.
+	 */
+	private void prepareInstancePrices(final UpdateContext context) {
+		final var node = context.getNode();
+		context.setInstanceTypes(itRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvInstanceType::getCode, Function.identity())));
+		prepareInstanceLookup(context);
+	}
+
+	/**
+	 * Prepare the lookup of the installed instance prices.
+	 */
+	private void prepareInstanceLookup(final UpdateContext context) {
+		context.setInstancePrices(new OvhPriceLookup<>(context.getLookupWindow(), evicted -> {
+			flushInstancePrices(context);
+			release(context, evicted);
+		}));
+	}
+
+	/**
+	 * Stage a modified instance price. Staged prices are written together when the batch size is reached.
+	 */
+	private void stageInstancePrice(final UpdateContext context, final ProvInstancePrice price) {
+		final var dirty = context.getDirtyInstancePrices();
+		dirty.add(price);
+		if (dirty.size() >= context.getBatchSize()) {
+			flushInstancePrices(context);
+		}
+	}
+
+	/**
+	 * Write the staged instance prices in a single flush, sent by JDBC batches of the same size than the staged prices.
+	 * The batch size of the session is restored afterwards.
+	 */
+	private void flushInstancePrices(final UpdateContext context) {
+		final var dirty = context.getDirtyInstancePrices();
+		if (!dirty.isEmpty()) {
+			final var session = em.unwrap(Session.class);
+			final var batchSize = session.getJdbcBatchSize();
+			session.setJdbcBatchSize(context.getBatchSize());
+			try {
+				ipRepository.saveAll(dirty);
+				ipRepository.flush();
+			} finally {
+				session.setJdbcBatchSize(batchSize);
+			}
+			dirty.clear();
+		}
 	}
 
 	// Install database prices
-	private void installDatabasePrices(final UpdateContext context, final ProvInstancePriceTerm hourlyTerm, final ProvInstancePriceTerm monthlyTerm,
-			final OvhAllPrices prices) {
-		// Database
-		nextStep(context, "install-database");
+	private void installDatabasePrices(final UpdateContext context, final OvhAllPrices prices) {
+		prepareDatabasePrices(context);
+		installDatabaseRows(context, prices);
+	}
+
+	/**
+	 * Install the database prices of the enabled regions, the database types are installed as needed.
+	 */
+	private void installDatabaseRows(final UpdateContext context, final OvhAllPrices prices) {
+		final var hourlyTerm = installPriceTerm(context, TERM_HOURLY, 0);
+		final var monthlyTerm = installPriceTerm(context, TERM_MONTHLY, 1);
+
+		// Each row is the price of a plan in its own region, the type is installed once per plan
+		final var types = new IdentityHashMap<OvhPlan, ProvDatabaseType>();
+		final var databases = prices.getDatabases();
+		for (var i = 0; i < databases.size(); i++) {
+			final var row = i;
+			installDatabasePrice(context, prices.getPlan(databases.getPlan(i)), prices.getRegion(databases.getRegion(i)),
+					k -> databases.getCost(k, row), types, hourlyTerm, monthlyTerm);
+		}
+	}
+
+	/**
+	 * Load the installed database types and prepare the lookup of the installed database prices.
+	 */
+	private void prepareDatabasePrices(final UpdateContext context) {
 		final var node = context.getNode();
-		context.setPreviousDatabase(
-				dpRepository.findAllBy("term.node", node).stream().collect(Collectors.toMap(ProvDatabasePrice::getCode, Function.identity())));
+		context.setDatabaseTypes(dtRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvDatabaseType::getCode, Function.identity())));
+		prepareDatabaseLookup(context);
+	}
+
+	/**
+	 * Prepare the lookup of the installed database prices.
+	 */
+	private void prepareDatabaseLookup(final UpdateContext context) {
+		context.setDatabasePrices(new OvhPriceLookup<>(context.getLookupWindow(), evicted -> {
+			dpRepository.flush();
+			release(context, evicted);
+		}));
+	}
 
-		prices.getDatabases().stream().filter(p -> isEnabledEngine(context, p.getEngine()) && isEnabledDatabaseType(context, p.getFlavor()))
-				.forEach((p) -> installDatabasePrices(context, hourlyTerm, monthlyTerm, p));
+	/**
+	 * Install the prices of a regional database row when its engine, flavor and region are enabled.
+	 */
+	private void installDatabasePrice(final UpdateContext context, final OvhPlan plan, final String region, final ToDoubleFunction<OvhPriceKey> costs,
+			final Map<OvhPlan, ProvDatabaseType> types, final ProvInstancePriceTerm hourlyTerm, final ProvInstancePriceTerm monthlyTerm) {
+		final var regionName = OvhAllPrices.toGlobalRegion(region);
+		if (isEnabledDatabase(context, plan, regionName)) {
+			final var type = types.computeIfAbsent(plan, p -> installDatabaseType(context, p));
+			installDatabasePrices(context, hourlyTerm, monthlyTerm, plan, type, installLocation(context, regionName),
+					costs.applyAsDouble(OvhPriceKey.HOURLY), costs.applyAsDouble(OvhPriceKey.MONTHLY));
+		}
+	}
+
+	/**
+	 * Indicate the engine, the flavor and the global region of a database plan are enabled.
+	 */
+	private boolean isEnabledDatabase(final UpdateContext context, final OvhPlan plan, final String regionName) {
+		return isEnabledEngine(context, plan.getEngine()) && isEnabledDatabaseType(context, plan.getFlavor()) && isEnabledRegion(context, regionName);
 	}
 
 	private void installDatabasePrices(final UpdateContext context, final ProvInstancePriceTerm hourlyTerm, final ProvInstancePriceTerm monthlyTerm,
-			final OvhAttrInstance p) {
+			final OvhPlan p, final ProvDatabaseType type, final ProvLocation region, final double hourlyCost, final double monthlyCost) {
 		final var engine = p.getEngine();
-		context.getUsedRegions().forEach(regionName -> {
-			final var region = context.getRegions().get(regionName);
-			final var codeType = "%s/%s".formatted(p.getPlan(), p.getFlavor());
-			final var codePricePlan = "%s-%s-%s".formatted(p.getEngine(), p.getPlan(), p.getFlavor());
-			var type = installDatabaseType(context, codeType, p);
-
-			// Install hourly based price
-			installDatabasePrice(context, hourlyTerm, codePricePlan, type, p.getHourlyCost(), context.getHoursMonth(), engine, region);
-			// Install monthly based price
-			installDatabasePrice(context, monthlyTerm, codePricePlan, type, p.getMonthlyCost(), 1, engine, region);
-		});
+		final var codePricePlan = "%s-%s-%s".formatted(engine, p.getDatabasePlan(), p.getFlavor());
+		final var attributes = getFingerprint(p);
+
+		// Install hourly based price
+		installDatabasePrice(context, hourlyTerm, codePricePlan, type, hourlyCost, context.getHoursMonth(), engine, region, attributes);
+		// Install monthly based price
+		installDatabasePrice(context, monthlyTerm, codePricePlan, type, monthlyCost, 1, engine, region, attributes);
 	}
 
 	private void installDatabasePrice(final UpdateContext context, final ProvInstancePriceTerm term, final String codePricePlan, final ProvDatabaseType type,
-			final Double costPeriod, double proRata, final String engine, final ProvLocation region) {
-		if (costPeriod != null) {
+			final double costPeriod, double proRata, final String engine, final ProvLocation region, final long attributes) {
+		if (!Double.isNaN(costPeriod)) {
 			// Price is available for this term
-			installDatabasePrice(context, term, term.getCode() + "/" + codePricePlan, type, costPeriod * proRata, engine, region);
+			installDatabasePrice(context, term, term.getCode() + "/" + codePricePlan, type, costPeriod * proRata, engine, region, attributes);
 		}
 	}
 
@@ -269,7 +1046,7 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 		final var previous = st2Repository.findAllBy(BY_NODE, context.getNode()).stream().collect(Collectors.toMap(INamableBean::getName, Function.identity()));
 
 		// Complete the set
-		csvForBean.toBean(ProvSupportType.class, "csv/ovh-prov-support-type.csv").forEach(t -> {
+		csvForBean.toBean(ProvSupportType.class, SUPPORT_TYPES).forEach(t -> {
 			final var entity = previous.computeIfAbsent(t.getCode(), n -> t);
 			// Merge the support type details
 			copyAsNeeded(context, entity, t2 -> {
@@ -297,184 +1074,571 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 		});
 	}
 
+	/**
+	 * Remove the prices of this node not installed by this import, except the ones still used by a quote. The prices
+	 * filtered by the configuration are left unchanged.
+	 */
+	private void retirePrices(final UpdateContext context) {
+		retirePrices(context, ProvInstancePrice.class, "term", "location.name, type.code, os",
+				r -> isEnabledRegion(context, (String) r[2]) && isEnabledType(context, (String) r[3]) && isEnabledOs(context, (VmOs) r[4]),
+				ProvQuoteInstance.class);
+		retirePrices(context, ProvDatabasePrice.class, "term", "location.name, type.code, engine",
+				r -> isEnabledRegion(context, (String) r[2]) && isEnabledDatabaseType(context, StringUtils.substringAfterLast((String) r[3], "/"))
+						&& isEnabledEngine(context, (String) r[4]),
+				ProvQuoteDatabase.class);
+		retirePrices(context, ProvStoragePrice.class, "type", "location.name", r -> isEnabledRegion(context, (String) r[2]), ProvQuoteStorage.class);
+		retirePrices(context, ProvSupportPrice.class, "type", null, r -> true, ProvQuoteSupport.class);
+
+		// The bulk deletes bypass the persistence context: the loaded prices are no more reliable
+		em.flush();
+		em.clear();
+		context.clearPrices();
+		context.setPreviousStorage(new HashMap<>());
+	}
+
+	/**
+	 * Remove the stale prices of a family with a bulk statement. A family without any installed price is considered as
+	 * not provided by the catalog, and is left unchanged.
+	 *
+	 * @param context  The update context.
+	 * @param entity   The price entity.
+	 * @param nodePath The path of the entity holding the node of a price.
+	 * @param filtered The attributes of a price checked by the configured filters, selected after its identifier and
+	 *                 its code. When <code>null</code>, only the identifier and the code are selected.
+	 * @param enabled  Indicate a selected price is enabled by the configured filters. Only the enabled prices are
+	 *                 retired.
+	 * @param quote    The quote entity referencing this price entity.
+	 */
+	private void retirePrices(final UpdateContext context, final Class<? extends AbstractPrice<?>> entity, final String nodePath,
+			final String filtered, final Predicate<Object[]> enabled, final Class<?> quote) {
+		final var installed = context.getInstalledCodes(entity);
+		if (installed.isEmpty()) {
+			return;
+		}
+
+		// Only the identifiers, the codes and the filtered attributes are loaded
+		final var stale = em
+				.createQuery("SELECT id, code" + (filtered == null ? "" : ", " + filtered) + " FROM " + entity.getSimpleName() + " WHERE "
+						+ nodePath + ".node.id = :node", Object[].class)
+				.setParameter("node", context.getNode().getId()).getResultList().stream().filter(r -> !installed.contains(r[1]))
+				.filter(enabled).map(r -> (Integer) r[0]).toList();
+		final var counters = context.getMetrics().get(OvhImportMetrics.RETIRE);
+		counters.getItems().addAndGet(stale.size());
+		var retired = 0;
+		for (var i = 0; i < stale.size(); i += RETIRE_CHUNK) {
+			retired += em.createQuery("DELETE FROM " + entity.getSimpleName() + " p WHERE p.id IN :ids AND NOT EXISTS (SELECT 1 FROM "
+					+ quote.getSimpleName() + " q WHERE q.price.id = p.id)")
+					.setParameter("ids", stale.subList(i, Math.min(stale.size(), i + RETIRE_CHUNK))).executeUpdate();
+		}
+		counters.getDeleted().addAndGet(retired);
+		if (!stale.isEmpty()) {
+			log.info("OVH catalog: {} {} retired, {} kept as used by a quote", retired, entity.getSimpleName(), stale.size() - retired);
+		}
+	}
+
 	private String getApiPriceUrl() {
-		return configuration.get(CONF_API_PRICES, DEFAULT_API_PRICES) + OVH_PRICES_PATH;
+		final var url = configuration.get(CONF_API_PRICES, DEFAULT_API_PRICES);
+		return url.endsWith(".json") || url.endsWith(".json.gz") ? url : StringUtils.removeEnd(url, "/") + OVH_PRICES_PATH;
+	}
+
+	/**
+	 * Return the base URL of the catalog endpoints: the configured URL without the price feed file name.
+	 */
+	private String getApiBaseUrl() {
+		final var url = getApiPriceUrl();
+		return url.substring(0, url.lastIndexOf('/'));
+	}
+
+	private OvhCatalogCache newCatalogCache(final String url) {
+		final var defaultDir = Path.of(System.getProperty("ligoj.home", System.getProperty("java.io.tmpdir")), "cache", "ovh");
+		return new OvhCatalogCache(Path.of(configuration.get(CONF_CACHE_DIR, defaultDir.toString())), url);
 	}
 
-	private List<Map<String, Object>> getResource(final Supplier<String> supplierUrl) throws IOException {
-		try (var curl = new CurlProcessor()) {
-			final var rawJson = Objects.toString(curl.get(supplierUrl.get()), "[]");
-			return objectMapper.readValue(rawJson, DATABASE_LIST2);
+	/**
+	 * Return the source of the price feed: the configured one, otherwise the one of {@link #CONF_API_PRICES}. A
+	 * <code>file:</code> URI is read from the local file system, a <code>classpath:</code> one from the class path, and
+	 * any other one is downloaded into the given cache.
+	 *
+	 * @param cache  The local snapshot of the remote catalog.
+	 * @param digest The digest of the last successful import of the node, <code>null</code> when never imported.
+	 * @return The source of the price feed.
+	 */
+	OvhCatalogSource newCatalogSource(final OvhCatalogCache cache, final String digest) {
+		if (catalogSource != null) {
+			return catalogSource;
+		}
+		final var url = getApiPriceUrl();
+		if (url.startsWith("file:")) {
+			return new OvhFileCatalogSource(Path.of(URI.create(url)));
 		}
+		if (url.startsWith(CLASSPATH_PREFIX)) {
+			return (force, download) -> OvhCatalogSource.decompress(new ClassPathResource(url.substring(CLASSPATH_PREFIX.length())).getInputStream());
+		}
+		return new OvhHttpCatalogSource(httpClient, url, cache, digest, getFetchTimeout());
+	}
+
+	/**
+	 * Open the price feed when it has changed since the last successful import, and parse it.
+	 *
+	 * @param context The update context.
+	 * @param source  The source of the price feed.
+	 * @return The parsed prices, or <code>null</code> when the feed has not changed and the update is not forced.
+	 * @throws IOException When the feed is not available or cannot be read.
+	 */
+	private OvhAllPrices getPrices(final UpdateContext context, final OvhCatalogSource source) throws IOException {
+		return getPrices(context, source, context.isForce());
 	}
 
-	private OvhAllPrices getPrices() throws IOException {
-		final var pricesMap = getResource(this::getApiPriceUrl);
-		final OvhAllPrices result = new OvhAllPrices();
-		pricesMap.stream().filter(p -> p.get("term") != null)
-				.forEach(planPrice -> planPrice.keySet().stream()
-						.filter(prop -> !prop.equals("term") && !prop.equals("planCode") && !prop.equals("regions") && !prop.startsWith("attr-"))
-						.forEach(region -> installRegionalPrice(region, planPrice, result)));
+	/**
+	 * Open the price feed, and parse it.
+	 *
+	 * @return The parsed prices, or <code>null</code> when the feed has not changed and the opening is not forced.
+	 */
+	private OvhAllPrices getPrices(final UpdateContext context, final OvhCatalogSource source, final boolean force) throws IOException {
+		final var input = openPrices(context, source, force);
+		if (input == null) {
+			return null;
+		}
+		try (input) {
+			return readPrices(input, context.getMetrics());
+		}
+	}
 
-		return result;
+	/**
+	 * Open the price feed when it has changed since the last successful import.
+	 *
+	 * @return The opened feed, or <code>null</code> when the feed has not changed and the update is not forced.
+	 */
+	private InputStream openPrices(final UpdateContext context, final OvhCatalogSource source, final boolean force) throws IOException {
+		final var download = context.getMetrics().get(OvhImportMetrics.DOWNLOAD);
+		final var start = System.nanoTime();
+		try {
+			return source.open(force, download);
+		} finally {
+			download.stop(start);
+		}
 	}
 
-	private void installRegionalPrice(final String region, final Map<String, Object> planPrice, OvhAllPrices result) {
-		// Each property is a region code
-		@SuppressWarnings("unchecked")
-		final var regionalPrice = (Map<String, String>) planPrice.get(region);
-		var priceObj = new OvhAttrInstance();
-		var planCode = (String) planPrice.get("planCode");
-		priceObj.setPlanCode(planCode);
-		priceObj.setRegion(region.toLowerCase());
-		var ram = (String) planPrice.get("attr-1");
-		var cpu = (String) planPrice.get("attr-2");
-		var details = planCode.replace("databases.", "").replace(".hour.consumption", "");
-		var tabDetails = details.split("-");
-
-		setPrice(regionalPrice, priceObj, "windows.monthly");
-		setPrice(regionalPrice, priceObj, "windows.hourly");
-		setPrice(regionalPrice, priceObj, "linux.monthly");
-		setPrice(regionalPrice, priceObj, "linux.hourly");
-		setPrice(regionalPrice, priceObj, "monthly");
-		setPrice(regionalPrice, priceObj, "hourly");
-		priceObj.setName((String) planPrice.get("attr-0"));
-
-		if (planCode.contains("storage") && !planCode.contains("bandwidth")) {
-			var price = (String) planPrice.get("attr-1");
-			if (!price.contains("Included")) {
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-1")));
-				result.getStorage().add(priceObj);
+	private boolean isStructuredEngine() {
+		return EnumUtils.getEnumIgnoreCase(OvhCatalogEngine.class, configuration.get(CONF_CATALOG_ENGINE),
+				OvhCatalogEngine.FEED) == OvhCatalogEngine.STRUCTURED;
+	}
+
+	/**
+	 * Return the catalog read by the configured engine. The structured endpoints are downloaded while the price feed
+	 * is downloaded and parsed, then joined to the parsed feed: the instances and the databases are only priced where
+	 * their flavor is available. Each endpoint is validated with its own snapshot: a not modified feed is still
+	 * imported when an endpoint has changed.
+	 *
+	 * @param context   The update context.
+	 * @param source    The source of the price feed.
+	 * @param endpoints The snapshots of the structured endpoints, completed by this call. Their validators are to be
+	 *                  persisted once the catalog is imported.
+	 * @return The parsed prices, or <code>null</code> when the feed and the endpoints have not changed and the update
+	 *         is not forced.
+	 * @throws IOException When the feed or a structured endpoint cannot be read.
+	 */
+	private OvhAllPrices getCatalog(final UpdateContext context, final OvhCatalogSource source, final List<OvhCatalogCache> endpoints)
+			throws IOException {
+		if (!isStructuredEngine()) {
+			return getPrices(context, source);
+		}
+		final var download = context.getMetrics().get(OvhImportMetrics.DOWNLOAD);
+		try (var fetcher = newCatalogFetcher()) {
+			final var structured = OvhStructuredCatalog.fetch(fetcher, objectMapper, getApiBaseUrl(), url -> {
+				final var endpoint = newCatalogCache(url);
+				endpoints.add(endpoint);
+				return endpoint;
+			}, download);
+			var prices = getPrices(context, source);
+			final var start = System.nanoTime();
+			final OvhStructuredCatalog catalog;
+			try {
+				catalog = structured.get();
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted structured catalog download", e);
+			} catch (final ExecutionException e) {
+				throw e.getCause() instanceof IOException io ? io : new IOException("Failed structured catalog download", e.getCause());
+			} finally {
+				download.stop(start);
 			}
-		} else if (planCode.contains("archive")) {
-			priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-1")));
-			result.getArchive().add(priceObj);
-		} else if (planCode.contains("volume.")) {
-			if (planPrice.get("attr-3") != null) {
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-3")));
-			} else if (planPrice.get("attr-2") != null) {
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-2")));
-			} else {
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-1")));
+			if (prices == null) {
+				if (!catalog.isModified()) {
+					// Unchanged feed and endpoints
+					return null;
+				}
+
+				// Only some endpoints have changed, they are joined to the snapshot of the feed
+				prices = getPrices(context, source, true);
 			}
-			result.getVolumes().add(priceObj);
-		} else if (planCode.contains("databases") || planCode.contains("db1-") || planCode.contains("db2-")) {
-			if (planPrice.get("attr-7") != null) {
-				setVmAttributes(priceObj, cpu, ram);
-				priceObj.setStorage((String) planPrice.get("attr-3"));
-				priceObj.setPublicNetwork((String) planPrice.get("attr-4"));
-				priceObj.setPrivateNetwork((String) planPrice.get("attr-5"));
-				priceObj.setDedicatedNode((String) planPrice.get("attr-6"));
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-7")));
-				priceObj.setEngine(tabDetails[0]);
-				priceObj.setPlan(tabDetails[1]);
-				priceObj.setFlavor(tabDetails[2] + "-" + tabDetails[3]);
-				result.getDatabases().add(priceObj);
-			} else if (tabDetails[1] != null) {
-				setVmAttributes(priceObj, cpu, ram);
-				priceObj.setPublicNetwork((String) planPrice.get("attr-3"));
-				priceObj.setPrivateNetwork((String) planPrice.get("attr-4"));
-				priceObj.setDedicatedNode((String) planPrice.get("attr-5"));
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-6")));
-				priceObj.setEngine(tabDetails[0]);
-				priceObj.setPlan(tabDetails[1]);
-				priceObj.setFlavor(tabDetails[2] + "-" + tabDetails[3]);
-				result.getDatabases().add(priceObj);
+			final var parse = context.getMetrics().get(OvhImportMetrics.PARSE);
+			final var joinStart = System.nanoTime();
+			catalog.join(prices);
+			parse.stop(joinStart);
+			return prices;
+		}
+	}
+
+	private OvhCatalogFetcher newCatalogFetcher() {
+		return new OvhCatalogFetcher(httpClient, configuration.get(CONF_FETCH_CONCURRENCY, OvhCatalogFetcher.DEFAULT_CONCURRENCY), getFetchTimeout(),
+				configuration.get(CONF_FETCH_RETRIES, OvhCatalogFetcher.DEFAULT_RETRIES), OvhCatalogFetcher.DEFAULT_BACKOFF);
+	}
+
+	/**
+	 * Return the configured timeout of each catalog download.
+	 */
+	private Duration getFetchTimeout() {
+		return Duration.ofSeconds(configuration.get(CONF_FETCH_TIMEOUT, (int) OvhCatalogFetcher.DEFAULT_TIMEOUT.toSeconds()));
+	}
+
+	/**
+	 * Read the price feed from a stream. Only one plan is held in memory at a time: each regional price is dispatched
+	 * to its bucket as soon as the plan is read. The digest of the normalized feed is computed along the parsing.
+	 *
+	 * @param input The JSON price feed stream, an array of plans.
+	 * @return The parsed prices.
+	 * @throws IOException When the stream cannot be read or is not a valid JSON.
+	 */
+	OvhAllPrices readPrices(final InputStream input) throws IOException {
+		return readPrices(input, new OvhImportMetrics());
+	}
+
+	/**
+	 * Read the price feed from a stream, and add the parsing and the classification to the given metrics.
+	 *
+	 * @param input   The JSON price feed stream, an array of plans.
+	 * @param metrics The metrics of the import.
+	 * @return The parsed prices.
+	 * @throws IOException When the stream cannot be read or is not a valid JSON.
+	 */
+	OvhAllPrices readPrices(final InputStream input, final OvhImportMetrics metrics) throws IOException {
+		return readPrices(input, metrics, null);
+	}
+
+	/**
+	 * Read the digest of the price feed from a stream, without building the prices. This digest is the one of
+	 * {@link #readPrices(InputStream, OvhImportMetrics, Consumer)}.
+	 *
+	 * @param input   The JSON price feed stream.
+	 * @param metrics The metrics of the import.
+	 * @return The digest of the normalized price feed.
+	 * @throws IOException When the stream cannot be read or is not a valid JSON.
+	 */
+	String readDigest(final InputStream input, final OvhImportMetrics metrics) throws IOException {
+		final var parse = metrics.get(OvhImportMetrics.PARSE);
+		final var start = System.nanoTime();
+		final var digest = DigestUtils.getSha256Digest();
+		try (var parser = new DigestParser(objectMapper.getFactory().createParser(input), digest)) {
+			while (parser.nextToken() != null) {
+				// Each token is digested
 			}
-		} else if (planCode.contains("instance") && !planCode.contains("bandwidth") || planCode.contains("b2-") || planCode.contains("c2-")
-				|| planCode.contains("t1-") || planCode.contains("t2-") || planCode.contains("i1-") && !planCode.contains(".ai1-1")
-				|| planCode.contains("d2-")) {
-			if (planPrice.get("attr-8") != null && planCode.contains("t1-") || planCode.contains("t2-")) {
-				setVmAttributes(priceObj, cpu, ram);
-				priceObj.setGPU((String) planPrice.get("attr-2"));
-				priceObj.setStorage((String) planPrice.get("attr-4"));
-				priceObj.setPublicNetwork((String) planPrice.get("attr-5"));
-				priceObj.setPrivateNetwork((String) planPrice.get("attr-6"));
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-7")));
-				result.getInstances().add(priceObj);
-			} else if (planPrice.get("attr-7") != null && planCode.contains("i1-") || planCode.contains("t1-")) {
-				setVmAttributes(priceObj, cpu, ram);
-				priceObj.setStorage((String) planPrice.get("attr-3"));
-				priceObj.setNVMeDisks((String) planPrice.get("attr-4"));
-				priceObj.setPublicNetwork((String) planPrice.get("attr-5"));
-				priceObj.setPrivateNetwork((String) planPrice.get("attr-6"));
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-7")));
-				result.getInstances().add(priceObj);
-			} else if (planPrice.get("attr-2") != null) {
-				setVmAttributes(priceObj, cpu, ram);
-				priceObj.setStorage((String) planPrice.get("attr-3"));
-				priceObj.setPublicNetwork((String) planPrice.get("attr-4"));
-				priceObj.setPrivateNetwork((String) planPrice.get("attr-5"));
-				priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-6")));
-				result.getInstances().add(priceObj);
+		}
+		parse.stop(start);
+		return Hex.encodeHexString(digest.digest());
+	}
+
+	/**
+	 * Read the price feed from a stream, and hand each classified regional price to the given sink as soon as its plan
+	 * is read.
+	 *
+	 * @param input   The JSON price feed stream, an array of plans.
+	 * @param metrics The metrics of the import.
+	 * @param sink    The consumer of the classified regional prices, called from the parsing thread. May be
+	 *                <code>null</code>.
+	 * @return The parsed prices.
+	 * @throws IOException When the stream cannot be read or is not a valid JSON.
+	 */
+	OvhAllPrices readPrices(final InputStream input, final OvhImportMetrics metrics, final Consumer<OvhPriceRow> sink) throws IOException {
+		final var parse = metrics.get(OvhImportMetrics.PARSE);
+		final var start = System.nanoTime();
+		final var result = new OvhAllPrices();
+		final var classifier = OvhPlanClassifier.load(objectMapper, OvhPlanClassifier.FAMILIES);
+		final var digest = DigestUtils.getSha256Digest();
+		try (var parser = new DigestParser(objectMapper.getFactory().createParser(input), digest)) {
+			if (parser.nextToken() == JsonToken.START_ARRAY) {
+				while (parser.nextToken() == JsonToken.START_OBJECT) {
+					readPlan(parser, classifier, result, metrics, sink);
+				}
 			}
-		} else if (planCode.contains("snapshot.")) {
-			priceObj.setPrice(Double.parseDouble((String) planPrice.get("attr-1")));
-			result.getSnapshots().add(priceObj);
 		}
+		result.setDigest(Hex.encodeHexString(digest.digest()));
+		parse.getItems().addAndGet(result.getPlans().size());
+		parse.stop(start);
+		return result;
 	}
 
-	private void setVmAttributes(final OvhAttrInstance priceObj, String cpu, String ram) {
-		priceObj.setCPU(Double.parseDouble(cpu.replaceAll("[/a-z A-Z]*", "").replaceAll("\\xA0", "")));
-		priceObj.setRAM(Double.parseDouble(ram.replaceAll("[/a-z A-Z]*", "").replaceAll("\\xA0", "")) * 1024);
+	/**
+	 * Read a plan: the string properties are the plan attributes, the object properties are the regional prices. The
+	 * plan is classified once for all its regions.
+	 */
+	private void readPlan(final JsonParser parser, final OvhPlanClassifier classifier, final OvhAllPrices result,
+			final OvhImportMetrics metrics, final Consumer<OvhPriceRow> sink) throws IOException {
+		final var planPrice = new HashMap<String, String>();
+		final var regionalPrices = new LinkedHashMap<String, Map<String, String>>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final var name = parser.currentName();
+			final var token = parser.nextToken();
+			if (token == JsonToken.START_OBJECT) {
+				// Each object property is a region code
+				regionalPrices.put(name, readValues(parser));
+			} else if (token == JsonToken.START_ARRAY) {
+				parser.skipChildren();
+			} else {
+				planPrice.put(name, parser.getValueAsString());
+			}
+		}
+		final var planCode = planPrice.get("planCode");
+		if (planPrice.get("term") == null || planCode == null) {
+			return;
+		}
+		final var classify = metrics.get(OvhImportMetrics.CLASSIFY);
+		final var start = System.nanoTime();
+		final var family = classifier.classify(planCode);
+		classify.stop(start);
+		classify.getItems().incrementAndGet();
+		if (family == null) {
+			// Not supported plan
+			return;
+		}
+		final var layout = family.getLayout(planPrice);
+		final var price = OvhPlanLayout.get(planPrice, layout == null ? -1 : layout.getPrice());
+		if (price == null || price.contains("Included")) {
+			// Not supported layout or not a billed plan
+			return;
+		}
+		final var planId = result.addPlan(newPlan(planCode, family.getCategory(), layout, planPrice));
+		final var columns = result.getColumns(family.getCategory());
+		regionalPrices.forEach((region, regionalPrice) -> {
+			final var row = columns.add(planId, result.internRegion(region.toLowerCase()), regionalPrice);
+			if (sink != null) {
+				sink.accept(OvhPriceRow.copy(result, columns, row));
+			}
+		});
 	}
 
-	private void setPrice(Map<String, String> regionalPrice, OvhAttrInstance priceObj, String attr) {
-		var value = regionalPrice.get(attr);
-		if (value != null && !value.contains("Included")) {
-			final Map<String, Consumer<Double>> setter = Map.of("linux.monthly", priceObj::setMonthlyLinuxCost, "linux.hourly", priceObj::setHourlyLinuxCost,
-					"windows.monthly", priceObj::setMonthlyWindowsCost, "windows.hourly", priceObj::setHourlyWindowsCost, "monthly", priceObj::setMonthlyCost,
-					"hourly", priceObj::setHourlyCost);
-			if (setter.containsKey(attr)) {
-				setter.get(attr).accept(parseCost(value));
+	/**
+	 * Read the flat string properties of the current object.
+	 */
+	private Map<String, String> readValues(final JsonParser parser) throws IOException {
+		final var values = new HashMap<String, String>();
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			final var name = parser.currentName();
+			final var token = parser.nextToken();
+			if (token != null && token.isStructStart()) {
+				parser.skipChildren();
+			} else {
+				values.put(name, parser.getValueAsString());
 			}
 		}
+		return values;
 	}
 
-	private Double parseCost(final String priceAsString) {
-		return Double.parseDouble(priceAsString.replaceAll("[^0-9.]", ""));
+	/**
+	 * Return the plan specifications read with the given layout. The numeric values are parsed once for all the
+	 * regions.
+	 */
+	OvhPlan newPlan(final String planCode, final OvhPlanCategory category, final OvhPlanLayout layout, final Map<String, String> planPrice) {
+		final var plan = new OvhPlan();
+		plan.setPlanCode(planCode);
+		plan.setCategory(category);
+		plan.setName(planPrice.get("attr-0"));
+		plan.setPrice(OvhNumberParser.parse(OvhPlanLayout.get(planPrice, layout.getPrice())));
+		if (layout.getCpu() >= 0) {
+			plan.setCpu(OvhNumberParser.parse(OvhPlanLayout.get(planPrice, layout.getCpu())));
+			plan.setRam(OvhNumberParser.parse(OvhPlanLayout.get(planPrice, layout.getRam())) * 1024);
+		}
+		plan.setGpu(OvhPlanLayout.get(planPrice, layout.getGpu()));
+		plan.setStorage(OvhPlanLayout.get(planPrice, layout.getStorage()));
+		plan.setNvme(OvhPlanLayout.get(planPrice, layout.getNvme()));
+		plan.setPublicNetwork(OvhPlanLayout.get(planPrice, layout.getPublicNetwork()));
+		plan.setPrivateNetwork(OvhPlanLayout.get(planPrice, layout.getPrivateNetwork()));
+		plan.setDedicatedNode(OvhPlanLayout.get(planPrice, layout.getDedicatedNode()));
+		if (category == OvhPlanCategory.DATABASE) {
+			// Plan code format: "databases.{engine}-{plan}-{flavor}.hour.consumption"
+			var tabDetails = planCode.replace("databases.", "").replace(".hour.consumption", "").split("-");
+			plan.setEngine(tabDetails[0]);
+			plan.setDatabasePlan(tabDetails[1]);
+			plan.setFlavor(tabDetails[2] + "-" + tabDetails[3]);
+		}
+		return plan;
 	}
 
-	private void installInstancePrice(final UpdateContext context, final OvhAttrInstance instance, final ProvInstancePriceTerm hourlyTerm,
-			final ProvInstancePriceTerm monthlyTerm) {
-		if (!isEnabledType(context, instance.getPlanCode())) {
+	private void installInstancePrice(final UpdateContext context, final OvhPlan plan, final String regionName, final ToDoubleFunction<OvhPriceKey> costs,
+			final ProvInstancePriceTerm hourlyTerm, final ProvInstancePriceTerm monthlyTerm) {
+		if (!isEnabledType(context, plan.getPlanCode())) {
 			return;
 		}
 
-		final var region = installRegion(context, instance.getRegion().toLowerCase());
+		final var region = installLocation(context, regionName);
+		final var type = installInstanceType(context, plan.getName(), plan);
+		final var attributes = getFingerprint(plan);
+		installInstancePrice(context, VmOs.WINDOWS, type, region, hourlyTerm, costs.applyAsDouble(OvhPriceKey.WINDOWS_HOURLY), monthlyTerm,
+				costs.applyAsDouble(OvhPriceKey.WINDOWS_MONTHLY), attributes);
+		installInstancePrice(context, VmOs.LINUX, type, region, hourlyTerm, costs.applyAsDouble(OvhPriceKey.LINUX_HOURLY), monthlyTerm,
+				costs.applyAsDouble(OvhPriceKey.LINUX_MONTHLY), attributes);
+	}
 
-		// Mark this region as used
-		context.getUsedRegions().add(instance.getRegion().toLowerCase());
+	private void installInstancePrice(final UpdateContext context, final VmOs os, final ProvInstanceType type, final ProvLocation region,
+			final ProvInstancePriceTerm hourlyTerm, final double hourly, final ProvInstancePriceTerm monthlyTerm, final double monthly,
+			final long attributes) {
+		if (Double.isNaN(hourly) || !isEnabledOs(context, os)) {
+			return;
+		}
 
-		final var type = installInstanceType(context, instance.getName(), instance);
+		installInstancePrice(context, hourlyTerm, os, type, hourly * context.getHoursMonth(), region, attributes);
+		if (!Double.isNaN(monthly)) {
+			installInstancePrice(context, monthlyTerm, os, type, monthly, region, attributes);
+		}
+	}
+
+	/**
+	 * Return the 64 bits hash of the plan specifications, compared with the cost of each of its prices.
+	 */
+	private static long getFingerprint(final OvhPlan plan) {
+		final var specs = Stream.of(plan.getName(), plan.getCpu(), plan.getRam(), plan.getGpu(), plan.getStorage(), plan.getNvme(),
+				plan.getPublicNetwork(), plan.getPrivateNetwork(), plan.getDedicatedNode()).map(String::valueOf).collect(Collectors.joining("\n"));
+		return ByteBuffer.wrap(DigestUtils.sha256(specs)).getLong();
+	}
 
-		if (instance.getHourlyWindowsCost() != null) {
-			installInstancePrice2(context, hourlyTerm, getOs("windows"), instance, region, type, monthlyTerm, "windows");
+	/**
+	 * Indicate the price is unchanged since the previous import, and keep it in the snapshot of this import. Such price
+	 * is neither loaded nor merged. A price already seen by this import is merged again to keep the last one.
+	 */
+	private boolean isUnchanged(final UpdateContext context, final String phase, final String code, final double cost, final long attributes) {
+		final var previous = context.getPreviousSnapshot();
+		if (previous.isUnchanged(code, cost, attributes) && !context.getSnapshot().contains(code)) {
+			context.getSnapshot().keep(previous, code);
+			final var counters = context.getMetrics().get(phase);
+			counters.getItems().incrementAndGet();
+			counters.getSkipped().incrementAndGet();
+			return true;
 		}
+		return false;
+	}
 
-		if (instance.getHourlyLinuxCost() != null) {
-			installInstancePrice2(context, hourlyTerm, getOs("linux"), instance, region, type, monthlyTerm, "linux");
+	/**
+	 * Count a price of a phase as inserted, updated or skipped, before its cost is merged.
+	 */
+	private void count(final UpdateContext context, final String phase, final AbstractPrice<?> price, final double cost) {
+		final var counters = context.getMetrics().get(phase);
+		counters.getItems().incrementAndGet();
+		if (price.getId() == null) {
+			counters.getInserted().incrementAndGet();
+		} else if (context.isForce() || price.getCost() != cost) {
+			counters.getUpdated().incrementAndGet();
+		} else {
+			counters.getSkipped().incrementAndGet();
 		}
+	}
 
-		installInstancePrice2(context, hourlyTerm, getOs("linux"), instance, region, type, monthlyTerm, "");
+	/**
+	 * Return the key of the previous prices of a type in a lookup. When the regions are installed by their own thread,
+	 * the prices of a type are looked up by region.
+	 */
+	private static String getLookupKey(final UpdateContext context, final AbstractInstanceType type, final ProvLocation region) {
+		return context.isSharded() ? type.getCode() + "/" + region.getName() : type.getCode();
+	}
 
-		// Mark this region as used
-		context.getUsedRegions().add(instance.getRegion().toLowerCase());
+	/**
+	 * Return the previous prices of a type, see {@link #getLookupKey(UpdateContext, AbstractInstanceType, ProvLocation)}.
+	 * In delta mode, only the added and changed prices are loaded, one by one.
+	 */
+	private <T extends AbstractPrice<?>> List<T> loadPrices(final UpdateContext context, final RestRepository<T, Integer> repository,
+			final Class<T> entity, final AbstractInstanceType type, final ProvLocation region) {
+		if (context.isDelta() || type.getId() == null) {
+			return List.of();
+		}
+		if (context.isSharded()) {
+			return em.createQuery("FROM " + entity.getSimpleName() + " WHERE type = :type AND location = :location", entity)
+					.setParameter("type", type).setParameter("location", region).getResultList();
+		}
+		return repository.findAllBy("type", type);
+	}
 
+	/**
+	 * Detach the written prices evicted from a lookup, so they no more retain memory.
+	 */
+	private void release(final UpdateContext context, final Collection<? extends AbstractPrice<?>> evicted) {
+		evicted.forEach(p -> {
+			context.getSnapshot().release(p);
+			em.detach(p);
+		});
 	}
 
-	private void installInstancePrice2(UpdateContext context, ProvInstancePriceTerm hourlyTerm, VmOs os, OvhAttrInstance instance, ProvLocation region,
-			ProvInstanceType type, ProvInstancePriceTerm monthlyTerm, String value) {
+	/**
+	 * Return the entity of a price not yet loaded: the one of the previous import when known, otherwise a new one. In
+	 * delta mode, a price unknown by the previous import may still exist, for instance when filtered by this import.
+	 */
+	private <T extends AbstractPrice<?>> T newPrice(final UpdateContext context, final String code, final RestRepository<T, Integer> repository,
+			final Class<T> entity, final Supplier<T> factory) {
+		if (context.isDelta()) {
+			final var known = context.getPreviousSnapshot().getId(code);
+			final var id = known == null ? getNodePrices(context, entity).get(code) : known;
+			final var previous = id == null ? Optional.<T>empty() : repository.findById(id);
+			if (previous.isPresent()) {
+				return previous.get();
+			}
+		}
 
-		if (!isEnabledOs(context, os)) {
-			return;
+		// New price
+		final var price = factory.get();
+		price.setCode(code);
+		return price;
+	}
+
+	/**
+	 * Return the identifiers of the prices of this node by code, loaded once with a single query.
+	 */
+	private Map<String, Integer> getNodePrices(final UpdateContext context, final Class<? extends AbstractPrice<?>> entity) {
+		return context.getNodePrices().computeIfAbsent(entity.getSimpleName(),
+				e -> em.createQuery("SELECT code, id FROM " + e + " WHERE term.node.id = :node", Object[].class)
+						.setParameter("node", context.getNode().getId()).getResultList().stream()
+						.collect(Collectors.toMap(r -> (String) r[0], r -> (Integer) r[1], (a, b) -> a)));
+	}
+
+	/**
+	 * Parser updating a digest with the consumed tokens. The digest does not depend on the formatting of the document.
+	 */
+	private static class DigestParser extends JsonParserDelegate {
+
+		private final MessageDigest digest;
+
+		private DigestParser(final JsonParser parser, final MessageDigest digest) {
+			super(parser);
+			this.digest = digest;
 		}
 
-		var hourly = "windows".equals(value) ? instance.getHourlyWindowsCost() : instance.getHourlyLinuxCost();
-		var monthly = "windows".equals(value) ? instance.getMonthlyWindowsCost() : instance.getMonthlyLinuxCost();
+		@Override
+		public JsonToken nextToken() throws IOException {
+			final var token = super.nextToken();
+			if (token != null) {
+				digest.update((byte) token.id());
+				if (token == JsonToken.FIELD_NAME || token.isScalarValue()) {
+					digest.update(getText().getBytes(StandardCharsets.UTF_8));
+				}
+			}
+			return token;
+		}
 
-		installInstancePrice(context, hourlyTerm, os, type, hourly * context.getHoursMonth(), region);
-		installInstancePrice(context, monthlyTerm, os, type, monthly, region);
+		@Override
+		public JsonParser skipChildren() throws IOException {
+			// The skipped tokens are digested too, so the digest does not depend on the read properties
+			if (currentToken() != null && currentToken().isStructStart()) {
+				for (var depth = 1; depth > 0;) {
+					final var token = nextToken();
+					if (token == null) {
+						break;
+					}
+					if (token.isStructStart()) {
+						depth++;
+					} else if (token.isStructEnd()) {
+						depth--;
+					}
+				}
+			}
+			return this;
+		}
 	}
 
 	@Override
@@ -487,9 +1651,26 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 	 * Install the storage types and prices.
 	 */
 	private void installStoragePrices(final UpdateContext context, final OvhAllPrices prices) {
-		nextStep(context, "install-vm-storage");
+		final var node = context.getNode();
+		context.setStorageTypes(stRepository.findAllBy(BY_NODE, node).stream().collect(Collectors.toMap(ProvStorageType::getCode, Function.identity())));
+		context.setPreviousStorage(
+				spRepository.findAllBy("type.node", node).stream().collect(Collectors.toMap(ProvStoragePrice::getCode, Function.identity())));
+		installStorageSections(prices, (columns, toCodeType, filler) -> installStorage(context, prices, columns, toCodeType, filler));
+	}
+
+	/**
+	 * Installation of the regional prices of a storage category.
+	 */
+	@FunctionalInterface
+	private interface StorageSection {
+		void install(OvhPriceColumns columns, Function<OvhPlan, String> toCodeType, BiConsumer<ProvStorageType, OvhPlan> filler);
+	}
 
-		installStorage(context, prices.getSnapshots(), p -> "snapshots", (t, p) -> {
+	/**
+	 * Run an installation for each storage category, with the code and the specifications of its types.
+	 */
+	private void installStorageSections(final OvhAllPrices prices, final StorageSection section) {
+		section.install(prices.getSnapshots(), p -> "snapshots", (t, p) -> {
 			t.setIops(7500);
 			t.setThroughput(300);
 			t.setLatency(Rate.LOW);
@@ -499,7 +1680,7 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 
 		});
 
-		installStorage(context, prices.getStorage(), p -> "storage", (t, p) -> {
+		section.install(prices.getStorage(), p -> "storage", (t, p) -> {
 			t.setIops(5000);
 			t.setThroughput(200);
 			t.setLatency(Rate.GOOD);
@@ -509,7 +1690,7 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 
 		});
 
-		installStorage(context, prices.getVolumes(), p -> p.getPlanCode().replace(".consumption", "").replace(".snapshot", ""), (t, p) -> {
+		section.install(prices.getVolumes(), p -> p.getPlanCode().replace(".consumption", "").replace(".snapshot", ""), (t, p) -> {
 			t.setIops(7500);
 			t.setThroughput(300);
 			t.setInstanceType("%");
@@ -536,7 +1717,7 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 
 		});
 
-		installStorage(context, prices.getArchive(), p -> "archive", (t, p) -> {
+		section.install(prices.getArchive(), p -> "archive", (t, p) -> {
 			t.setIops(7500);
 			t.setThroughput(300);
 			t.setLatency(Rate.WORST);
@@ -547,46 +1728,47 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 
 	}
 
-	private <P extends OvhAttrInstance> void installStorage(UpdateContext context, final List<P> prices, final Function<P, String> toCodeType,
-			final BiConsumer<ProvStorageType, P> filler) {
-		prices.stream().filter(p -> isEnabledRegion(context, p.getRegion().toLowerCase())).forEach(p -> {
-			final var codeType = toCodeType.apply(p);
-			final var type = installStorageType(context, codeType, filler, p);
-			final var region = p.getRegion().toLowerCase();
-			installStoragePrice(context, region, type, p.getPrice(), region + "/" + type.getCode());
-		});
-	}
-
-	private VmOs getOs(final String osName) {
-		return EnumUtils.getEnum(VmOs.class, osName.toUpperCase());
+	private void installStorage(final UpdateContext context, final OvhAllPrices prices, final OvhPriceColumns columns,
+			final Function<OvhPlan, String> toCodeType, final BiConsumer<ProvStorageType, OvhPlan> filler) {
+		for (var i = 0; i < columns.size(); i++) {
+			final var region = prices.getRegion(columns.getRegion(i));
+			if (isEnabledRegion(context, region)) {
+				final var plan = prices.getPlan(columns.getPlan(i));
+				final var type = installStorageType(context, toCodeType.apply(plan), filler, plan);
+				installStoragePrice(context, region, type, plan.getPrice(), region + "/" + type.getCode());
+			}
+		}
 	}
 
 	/**
 	 * Install or update a storage type.
 	 */
 	// extends OvhStorage
-	private <P extends OvhAttrInstance> ProvStorageType installStorageType(final UpdateContext context, final String code,
-			final BiConsumer<ProvStorageType, P> aType, final P price) {
-		final var type = context.getStorageTypes().computeIfAbsent(code, c -> {
-			final var newType = new ProvStorageType();
-			newType.setNode(context.getNode());
-			newType.setCode(c);
-			return newType;
-		});
+	private ProvStorageType installStorageType(final UpdateContext context, final String code, final BiConsumer<ProvStorageType, OvhPlan> aType,
+			final OvhPlan price) {
+		return context.locked(code, () -> {
+			final var type = context.getStorageTypes().computeIfAbsent(code, c -> {
+				final var newType = new ProvStorageType();
+				newType.setNode(context.getNode());
+				newType.setCode(c);
+				return newType;
+			});
 
-		return copyAsNeeded(context, type, t -> {
-			t.setName(code /* human-readable name */);
-			t.setMinimal(1);
-			t.setIncrement(null);
-			t.setAvailability(99d);
-			aType.accept(t, price);
-		}, stRepository);
+			return copyAsNeeded(context, type, t -> {
+				t.setName(code /* human-readable name */);
+				t.setMinimal(1);
+				t.setIncrement(null);
+				t.setAvailability(99d);
+				aType.accept(t, price);
+			}, stRepository);
+		});
 	}
 
 	/**
 	 * Install or update a storage price.
 	 */
 	private void installStoragePrice(final UpdateContext context, final String region, final ProvStorageType type, final double cost, final String code) {
+		context.getInstalledCodes(ProvStoragePrice.class).add(code);
 		final var price = context.getPreviousStorage().computeIfAbsent(code, c -> {
 			final var newPrice = new ProvStoragePrice();
 			newPrice.setType(type);
@@ -595,11 +1777,12 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 		});
 
 		copyAsNeeded(context, price, p -> {
-			p.setLocation(installRegion(context, region));
+			p.setLocation(installLocation(context, region));
 			p.setType(type);
 		});
 
 		// Update the cost
+		count(context, OvhImportMetrics.STORAGE, price, cost);
 		saveAsNeeded(context, price, cost, spRepository);
 	}
 
@@ -607,14 +1790,15 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 	 * Install a new instance price as needed.
 	 */
 	private void installInstancePrice(final UpdateContext context, final ProvInstancePriceTerm term, final VmOs os, final ProvInstanceType type,
-			final double monthlyCost, final ProvLocation region) {
-		final var price = context.getPrevious().computeIfAbsent(os.name().toLowerCase() + "/" + region.getName() + "/" + term.getCode() + "/" + type.getCode(),
-				code -> {
-					// New instance price (not update mode)
-					final var newPrice = new ProvInstancePrice();
-					newPrice.setCode(code);
-					return newPrice;
-				});
+			final double monthlyCost, final ProvLocation region, final long attributes) {
+		final var code = os.name().toLowerCase() + "/" + region.getName() + "/" + term.getCode() + "/" + type.getCode();
+		context.getInstalledCodes(ProvInstancePrice.class).add(code);
+		if (isUnchanged(context, OvhImportMetrics.VM, code, monthlyCost, attributes)) {
+			return;
+		}
+		final var price = context.getInstancePrices().computeIfAbsent(getLookupKey(context, type, region),
+				() -> loadPrices(context, ipRepository, ProvInstancePrice.class, type, region), code,
+				c -> newPrice(context, c, ipRepository, ProvInstancePrice.class, ProvInstancePrice::new));
 		copyAsNeeded(context, price, p -> {
 			p.setLocation(region);
 			p.setOs(os);
@@ -624,102 +1808,128 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 			p.setPeriod(term.getPeriod());
 		});
 
-		// Update the cost
-		ipRepository.findAll();
-		saveAsNeeded(context, price, monthlyCost, ipRepository);
+		// Update the cost, the write is deferred to the next batch
+		count(context, OvhImportMetrics.VM, price, monthlyCost);
+		saveAsNeeded(context, price, price.getCost(), monthlyCost, (cR, c) -> {
+			price.setCost(cR);
+			price.setCostPeriod(round3Decimals(c * Math.max(1, term.getPeriod())));
+		}, p -> stageInstancePrice(context, p));
+		context.getSnapshot().put(code, monthlyCost, attributes, price);
 	}
 
 	/**
-	 * Install a new instance type as needed.
+	 * Install a region as needed, once at a time for a given name.
 	 */
-	private ProvInstanceType installInstanceType(final UpdateContext context, final String code, final OvhAttrInstance aType) {
-		final var type = context.getInstanceTypes().computeIfAbsent(code, c -> {
-			// New instance type (not update mode)
-			final var newType = new ProvInstanceType();
-			newType.setNode(context.getNode());
-			newType.setCode(c);
-			return newType;
-		});
+	private ProvLocation installLocation(final UpdateContext context, final String region) {
+		return context.locked(region, () -> installRegion(context, region));
+	}
 
-		// Merge as needed
-		return copyAsNeeded(context, type, t -> {
-			t.setName(code);
-			t.setCpu(aType.getCPU());
-			t.setRam((int) Math.ceil(aType.getRAM())); // Convert in MiB / 1000 * 1024
-			t.setDescription("{Disk: " + aType.getStorage() + "}");
-			t.setAutoScale(false);
+	/**
+	 * Install a new instance type as needed.
+	 */
+	private ProvInstanceType installInstanceType(final UpdateContext context, final String code, final OvhPlan aType) {
+		return context.locked(code, () -> {
+			final var type = context.getInstanceTypes().computeIfAbsent(code, c -> {
+				// New instance type (not update mode)
+				final var newType = new ProvInstanceType();
+				newType.setNode(context.getNode());
+				newType.setCode(c);
+				return newType;
+			});
 
-			// Rating
-			t.setCpuRate(Rate.MEDIUM);
-			t.setRamRate(Rate.MEDIUM);
-			t.setNetworkRate(Rate.MEDIUM);
-			t.setStorageRate(Rate.MEDIUM);
-		}, itRepository);
+			// Merge as needed
+			return copyAsNeeded(context, type, t -> {
+				t.setName(code);
+				t.setCpu(aType.getCpu());
+				t.setRam((int) Math.ceil(aType.getRam())); // Convert in MiB / 1000 * 1024
+				t.setDescription("{Disk: " + aType.getStorage() + "}");
+				t.setAutoScale(false);
+
+				// Rating
+				t.setCpuRate(Rate.MEDIUM);
+				t.setRamRate(Rate.MEDIUM);
+				t.setNetworkRate(Rate.MEDIUM);
+				t.setStorageRate(Rate.MEDIUM);
+			}, itRepository);
+		});
 	}
 
 	/**
 	 * Install a new price term as needed and complete the specifications.
 	 */
 	protected ProvInstancePriceTerm installPriceTerm(final UpdateContext context, final String code, final int period) {
-		final var term = context.getPriceTerms().computeIfAbsent(code, t -> {
-			final var newTerm = new ProvInstancePriceTerm();
-			newTerm.setNode(context.getNode());
-			newTerm.setCode(t);
-			return newTerm;
-		});
+		return context.locked(code, () -> {
+			final var term = context.getPriceTerms().computeIfAbsent(code, t -> {
+				final var newTerm = new ProvInstancePriceTerm();
+				newTerm.setNode(context.getNode());
+				newTerm.setCode(t);
+				return newTerm;
+			});
 
-		// Complete the specifications
-		return copyAsNeeded(context, term, t -> {
-			t.setName(code /* human-readable name */);
-			t.setPeriod(period);
-			t.setReservation(false);
-			t.setConvertibleFamily(false);
-			t.setConvertibleType(false);
-			t.setConvertibleLocation(false);
-			t.setConvertibleOs(false);
-			t.setEphemeral(false);
+			// Complete the specifications
+			return copyAsNeeded(context, term, t -> {
+				t.setName(code /* human-readable name */);
+				t.setPeriod(period);
+				t.setReservation(false);
+				t.setConvertibleFamily(false);
+				t.setConvertibleType(false);
+				t.setConvertibleLocation(false);
+				t.setConvertibleOs(false);
+				t.setEphemeral(false);
+			});
 		});
 	}
 
 	/**
-	 * Install a new database type as needed.
+	 * Install the database type of a plan as needed.
 	 */
-	private ProvDatabaseType installDatabaseType(final UpdateContext context, final String code, final OvhAttrInstance database) {
-		final var type = context.getDatabaseTypes().computeIfAbsent(code, c -> {
-			final var newType = new ProvDatabaseType();
-			newType.setNode(context.getNode());
-			newType.setCode(c);
-			return newType;
-		});
+	private ProvDatabaseType installDatabaseType(final UpdateContext context, final OvhPlan database) {
+		return installDatabaseType(context, "%s/%s".formatted(database.getDatabasePlan(), database.getFlavor()), database);
+	}
 
-		// Merge as needed
-		return copyAsNeeded(context, type, t -> {
-			t.setName(code);
-			t.setCpu(database.getCPU());
-			t.setRam(database.getRAM()); // Convert to MiB * 1024.0
-			t.setAutoScale(false);
-			t.setDescription(String.format("{\"Dedicated node\":\"%s\",\"Private network\":\"%s\",\"Public Network\":\"%s\",\"storage\":\"%s\"}",
-					database.getDedicatedNode(), database.getPrivateNetwork(), database.getPublicNetwork(), database.getStorage()));
+	/**
+	 * Install a new database type as needed.
+	 */
+	private ProvDatabaseType installDatabaseType(final UpdateContext context, final String code, final OvhPlan database) {
+		return context.locked(code, () -> {
+			final var type = context.getDatabaseTypes().computeIfAbsent(code, c -> {
+				final var newType = new ProvDatabaseType();
+				newType.setNode(context.getNode());
+				newType.setCode(c);
+				return newType;
+			});
 
-			// Rating
-			t.setCpuRate(Rate.MEDIUM);
-			t.setRamRate(Rate.MEDIUM);
-			t.setNetworkRate(Rate.MEDIUM);
-			t.setStorageRate(Rate.MEDIUM);
-		}, dtRepository);
+			// Merge as needed
+			return copyAsNeeded(context, type, t -> {
+				t.setName(code);
+				t.setCpu(database.getCpu());
+				t.setRam(database.getRam()); // Convert to MiB * 1024.0
+				t.setAutoScale(false);
+				t.setDescription(String.format("{\"Dedicated node\":\"%s\",\"Private network\":\"%s\",\"Public Network\":\"%s\",\"storage\":\"%s\"}",
+						database.getDedicatedNode(), database.getPrivateNetwork(), database.getPublicNetwork(), database.getStorage()));
+
+				// Rating
+				t.setCpuRate(Rate.MEDIUM);
+				t.setRamRate(Rate.MEDIUM);
+				t.setNetworkRate(Rate.MEDIUM);
+				t.setStorageRate(Rate.MEDIUM);
+			}, dtRepository);
+		});
 	}
 
 	/**
 	 * Install a new instance price as needed.
 	 */
 	private void installDatabasePrice(final UpdateContext context, final ProvInstancePriceTerm term, final String localCode, final ProvDatabaseType type,
-			final double monthlyCost, final String engine, final ProvLocation region) {
-		final var price = context.getPreviousDatabase().computeIfAbsent(region.getName() + "/" + localCode, c -> {
-			// New instance price
-			final var newPrice = new ProvDatabasePrice();
-			newPrice.setCode(c);
-			return newPrice;
-		});
+			final double monthlyCost, final String engine, final ProvLocation region, final long attributes) {
+		final var code = region.getName() + "/" + localCode;
+		context.getInstalledCodes(ProvDatabasePrice.class).add(code);
+		if (isUnchanged(context, OvhImportMetrics.DATABASE, code, monthlyCost, attributes)) {
+			return;
+		}
+		final var price = context.getDatabasePrices().computeIfAbsent(getLookupKey(context, type, region),
+				() -> loadPrices(context, dpRepository, ProvDatabasePrice.class, type, region), code,
+				c -> newPrice(context, c, dpRepository, ProvDatabasePrice.class, ProvDatabasePrice::new));
 
 		copyAsNeeded(context, price, p -> {
 			p.setLocation(region);
@@ -730,7 +1940,9 @@ public class OvhPriceImport extends AbstractImportCatalogResource {
 		});
 
 		// Update the cost
+		count(context, OvhImportMetrics.DATABASE, price, round3Decimals(monthlyCost));
 		saveAsNeeded(context, price, round3Decimals(monthlyCost), dpRepository);
+		context.getSnapshot().put(code, monthlyCost, attributes, price);
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.Map;
+
+/**
+ * Price keys of an OVH regional price. The ordinal is the column index within {@link OvhPriceColumns}.
+ */
+public enum OvhPriceKey {
+
+	WINDOWS_MONTHLY("windows.monthly"),
+
+	WINDOWS_HOURLY("windows.hourly"),
+
+	LINUX_MONTHLY("linux.monthly"),
+
+	LINUX_HOURLY("linux.hourly"),
+
+	MONTHLY("monthly"),
+
+	HOURLY("hourly");
+
+	/**
+	 * Shared values, {@link #values()} returns a new array for each call.
+	 */
+	static final OvhPriceKey[] VALUES = values();
+
+	private final String key;
+
+	OvhPriceKey(final String key) {
+		this.key = key;
+	}
+
+	/**
+	 * Return the billed price of this key from a regional price.
+	 *
+	 * @param regionalPrice The regional price properties.
+	 * @return The price, or {@link Double#NaN} when not provided or containing <code>Included</code>.
+	 */
+	public double read(final Map<String, String> regionalPrice) {
+		final var value = regionalPrice.get(key);
+		if (value == null || value.contains("Included")) {
+			return Double.NaN;
+		}
+		return OvhNumberParser.parse(value);
+	}
+
+	/**
+	 * Return the feed property name.
+	 *
+	 * @return The feed property name such as <code>linux.hourly</code>.
+	 */
+	public String getKey() {
+		return key;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.ligoj.app.plugin.prov.model.AbstractPrice;
+
+/**
+ * Previous prices of a node, lazily loaded by partition such as all the prices of a type. A partition is loaded by a
+ * single query on its first access. Only a bounded window of the most recently used partitions is kept: when full,
+ * the oldest half is evicted. Not thread safe, each section has its own lookup.
+ *
+ * @param <T> The price type.
+ */
+public class OvhPriceLookup<T extends AbstractPrice<?>> {
+
+	private final int window;
+
+	private final Consumer<Collection<T>> evictor;
+
+	/**
+	 * Loaded partitions, by access order.
+	 */
+	private final LinkedHashMap<String, Map<String, T>> partitions = new LinkedHashMap<>(16, 0.75f, true);
+
+	/**
+	 * Lookup with a bounded window.
+	 *
+	 * @param window  The maximal amount of partitions kept in memory. At least 2.
+	 * @param evictor Called with the prices of the evicted partitions, before they are dropped.
+	 */
+	public OvhPriceLookup(final int window, final Consumer<Collection<T>> evictor) {
+		this.window = Math.max(2, window);
+		this.evictor = evictor;
+	}
+
+	/**
+	 * Return a price, loading its partition as needed.
+	 *
+	 * @param partition The partition key of the price.
+	 * @param loader    The loader of the previous prices of the partition, called on the first access.
+	 * @param code      The price code.
+	 * @param factory   The factory of a price not found in its partition.
+	 * @return The previous or the new price.
+	 */
+	public T computeIfAbsent(final String partition, final Supplier<List<T>> loader, final String code, final Function<String, T> factory) {
+		var prices = partitions.get(partition);
+		if (prices == null) {
+			evictAsNeeded();
+			prices = new HashMap<>();
+			for (final var price : loader.get()) {
+				prices.put(price.getCode(), price);
+			}
+			partitions.put(partition, prices);
+		}
+		return prices.computeIfAbsent(code, factory);
+	}
+
+	private void evictAsNeeded() {
+		if (partitions.size() >= window) {
+			final var evicted = new ArrayList<T>();
+			final var iterator = partitions.values().iterator();
+			while (partitions.size() > window / 2) {
+				evicted.addAll(iterator.next().values());
+				iterator.remove();
+			}
+			evictor.accept(evicted);
+		}
+	}
+
+	/**
+	 * Return the amount of partitions in memory.
+	 *
+	 * @return The amount of partitions in memory.
+	 */
+	public int size() {
+		return partitions.size();
+	}
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import lombok.Getter;
+
+/**
+ * A classified regional price emitted by the parser of the pipelined import. Unlike the {@link OvhPriceColumns} rows,
+ * it owns its prices and can be handed to another thread.
+ */
+public class OvhPriceRow {
+
+	/**
+	 * End of the parsed feed.
+	 */
+	static final OvhPriceRow END = new OvhPriceRow(null, null, null, new double[0]);
+
+	/**
+	 * The plan, not modified once parsed.
+	 */
+	@Getter
+	private final OvhPlan plan;
+
+	@Getter
+	private final OvhPlanCategory category;
+
+	/**
+	 * Region name, such as <code>gra</code>.
+	 */
+	@Getter
+	private final String region;
+
+	private final double[] costs;
+
+	private OvhPriceRow(final OvhPlan plan, final OvhPlanCategory category, final String region, final double[] costs) {
+		this.plan = plan;
+		this.category = category;
+		this.region = region;
+		this.costs = costs;
+	}
+
+	/**
+	 * Copy a row of a category.
+	 *
+	 * @param prices  The parsed catalog owning the dictionaries.
+	 * @param columns The regional prices of the category.
+	 * @param row     The row index.
+	 * @return The copied row.
+	 */
+	static OvhPriceRow copy(final OvhAllPrices prices, final OvhPriceColumns columns, final int row) {
+		final var plan = prices.getPlan(columns.getPlan(row));
+		final var costs = new double[OvhPriceKey.VALUES.length];
+		for (final var key : OvhPriceKey.VALUES) {
+			costs[key.ordinal()] = columns.getCost(key, row);
+		}
+		return new OvhPriceRow(plan, plan.getCategory(), prices.getRegion(columns.getRegion(row)), costs);
+	}
+
+	/**
+	 * Return a price of this row.
+	 *
+	 * @param key The price key.
+	 * @return The price, or {@link Double#NaN} when not provided.
+	 */
+	public double getCost(final OvhPriceKey key) {
+		return costs[key.ordinal()];
+	}
+}
@@ -0,0 +1,224 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.ligoj.app.plugin.prov.model.AbstractPrice;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Prices written by an import: the exact cost and the attributes hash of each price code, and the identifier of its
+ * entity. Compared to the next feed, only the added and changed prices need to be loaded and merged. Safe for
+ * concurrent writers.
+ */
+public class OvhPriceSnapshot {
+
+	private static final char SEPARATOR = '\t';
+
+	/**
+	 * Digest of the imported catalog, <code>null</code> when there is no usable snapshot.
+	 */
+	@Getter
+	@Setter
+	private String digest;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+	/**
+	 * A price row. The identifier is read from the entity when not yet known.
+	 */
+	private static class Entry {
+
+		private final long cost;
+
+		private final long attributes;
+
+		private final Integer id;
+
+		private final AbstractPrice<?> price;
+
+		private Entry(final long cost, final long attributes, final Integer id, final AbstractPrice<?> price) {
+			this.cost = cost;
+			this.attributes = attributes;
+			this.id = id;
+			this.price = price;
+		}
+
+		private Integer getId() {
+			return price == null ? id : price.getId();
+		}
+	}
+
+	/**
+	 * Indicate the price has the same cost and attributes in this snapshot.
+	 *
+	 * @param code       The price code.
+	 * @param cost       The cost of the price, compared exactly.
+	 * @param attributes The hash of the attributes of the price.
+	 * @return <code>true</code> when the price is known with the same cost and attributes.
+	 */
+	public boolean isUnchanged(final String code, final double cost, final long attributes) {
+		final var entry = entries.get(code);
+		return entry != null && entry.cost == Double.doubleToLongBits(cost) && entry.attributes == attributes && entry.getId() != null;
+	}
+
+	/**
+	 * Indicate the price is known by this snapshot.
+	 *
+	 * @param code The price code.
+	 * @return <code>true</code> when the price is known.
+	 */
+	public boolean contains(final String code) {
+		return entries.containsKey(code);
+	}
+
+	/**
+	 * Return the entity identifier of a price.
+	 *
+	 * @param code The price code.
+	 * @return The entity identifier, or <code>null</code> when unknown.
+	 */
+	public Integer getId(final String code) {
+		final var entry = entries.get(code);
+		return entry == null ? null : entry.getId();
+	}
+
+	/**
+	 * Copy a price from another snapshot.
+	 *
+	 * @param previous The snapshot holding the price.
+	 * @param code     The price code.
+	 */
+	public void keep(final OvhPriceSnapshot previous, final String code) {
+		final var entry = previous.entries.get(code);
+		entries.put(code, new Entry(entry.cost, entry.attributes, entry.getId(), null));
+	}
+
+	/**
+	 * Add or replace a merged price.
+	 *
+	 * @param code       The price code.
+	 * @param cost       The cost of the price.
+	 * @param attributes The hash of the attributes of the price.
+	 * @param price      The price entity, its identifier is read when this snapshot is saved.
+	 */
+	public void put(final String code, final double cost, final long attributes, final AbstractPrice<?> price) {
+		entries.put(code, new Entry(Double.doubleToLongBits(cost), attributes, null, price));
+	}
+
+	/**
+	 * Drop the reference to a written price entity, only its identifier is kept.
+	 *
+	 * @param price The written price entity.
+	 */
+	public void release(final AbstractPrice<?> price) {
+		entries.computeIfPresent(price.getCode(),
+				(code, entry) -> entry.price == price && price.getId() != null ? new Entry(entry.cost, entry.attributes, price.getId(), null) : entry);
+	}
+
+	/**
+	 * Return the codes of this snapshot no more present in the next one.
+	 *
+	 * @param next The next snapshot.
+	 * @return The removed codes.
+	 */
+	public Set<String> getRemoved(final OvhPriceSnapshot next) {
+		final var removed = new HashSet<>(entries.keySet());
+		removed.removeAll(next.entries.keySet());
+		return removed;
+	}
+
+	/**
+	 * Return the amount of prices.
+	 *
+	 * @return The amount of prices.
+	 */
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Read a snapshot file.
+	 *
+	 * @param file The snapshot file.
+	 * @return The read snapshot, empty and without digest when the file does not exist or has not the current format.
+	 * @throws IOException When the file cannot be read.
+	 */
+	public static OvhPriceSnapshot load(final Path file) throws IOException {
+		final var snapshot = new OvhPriceSnapshot();
+		if (Files.isReadable(file)) {
+			try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+				snapshot.setDigest(reader.readLine());
+				for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+					final var idIndex = line.lastIndexOf(SEPARATOR);
+					final var attributesIndex = line.lastIndexOf(SEPARATOR, idIndex - 1);
+					final var costIndex = line.lastIndexOf(SEPARATOR, attributesIndex - 1);
+					if (costIndex < 0) {
+						// Previous format, not usable
+						return new OvhPriceSnapshot();
+					}
+					snapshot.entries.put(line.substring(0, costIndex),
+							new Entry(Long.parseLong(line.substring(costIndex + 1, attributesIndex)),
+									Long.parseLong(line.substring(attributesIndex + 1, idIndex)), Integer.valueOf(line.substring(idIndex + 1)), null));
+				}
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Read the digest of a snapshot file, without reading its prices.
+	 *
+	 * @param file The snapshot file.
+	 * @return The digest of the snapshot, <code>null</code> when the file does not exist.
+	 * @throws IOException When the file cannot be read.
+	 */
+	public static String readDigest(final Path file) throws IOException {
+		if (!Files.isReadable(file)) {
+			return null;
+		}
+		try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return reader.readLine();
+		}
+	}
+
+	/**
+	 * Replace the snapshot file by this snapshot. The prices without identifier are not written.
+	 *
+	 * @param file The snapshot file.
+	 * @throws IOException When the file cannot be written.
+	 */
+	public void save(final Path file) throws IOException {
+		Files.createDirectories(file.getParent());
+		final var tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+		try {
+			try (var writer = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+				writer.write(digest);
+				writer.newLine();
+				for (final var entry : entries.entrySet()) {
+					final var id = entry.getValue().getId();
+					if (id != null) {
+						writer.append(entry.getKey()).append(SEPARATOR).append(String.valueOf(entry.getValue().cost)).append(SEPARATOR)
+								.append(String.valueOf(entry.getValue().attributes)).append(SEPARATOR).append(String.valueOf(id));
+						writer.newLine();
+					}
+				}
+			}
+			Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tmp);
+		}
+	}
+}
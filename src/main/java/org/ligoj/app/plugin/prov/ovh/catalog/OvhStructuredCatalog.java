@@ -0,0 +1,258 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+/**
+ * Structured OVH catalog: the instance flavors, the database availability, capabilities and prices. These endpoints
+ * are joined in memory by plan code to the price feed, so the install steps are the same for both engines.
+ */
+@Getter
+public class OvhStructuredCatalog {
+
+	/**
+	 * Instance flavors path, relative to the catalog base URL.
+	 */
+	public static final String FLAVORS_PATH = "/flavor.json";
+
+	/**
+	 * Database availability path, relative to the catalog base URL.
+	 */
+	public static final String DATABASE_AVAILABILITY_PATH = "/database-availability.json";
+
+	/**
+	 * Database capabilities path, relative to the catalog base URL.
+	 */
+	public static final String DATABASE_CAPABILITIES_PATH = "/database-capabilities.json";
+
+	/**
+	 * Database prices path, relative to the catalog base URL.
+	 */
+	public static final String DATABASE_PRICE_PATH = "/database-price.json";
+
+	private static final TypeReference<List<OvhFlavor>> LIST_FLAVOR = new TypeReference<>() {
+		// Nothing to override
+	};
+
+	private static final TypeReference<List<OvhDatabaseAvailability>> LIST_AVAILABILITY = new TypeReference<>() {
+		// Nothing to override
+	};
+
+	private static final TypeReference<List<OvhDatabasePrice>> LIST_DATABASE_PRICE = new TypeReference<>() {
+		// Nothing to override
+	};
+
+	private List<OvhFlavor> flavors = new ArrayList<>();
+
+	private List<OvhDatabaseAvailability> databaseAvailability = new ArrayList<>();
+
+	private OvhDatabaseCapabilities databaseCapabilities = new OvhDatabaseCapabilities();
+
+	private List<OvhDatabasePrice> databasePrices = new ArrayList<>();
+
+	/**
+	 * Digest of the raw endpoint contents.
+	 */
+	private String digest;
+
+	/**
+	 * Snapshots of the endpoints, holding their own HTTP validators.
+	 */
+	@Getter(AccessLevel.NONE)
+	private final List<OvhCatalogCache> caches = new ArrayList<>();
+
+	/**
+	 * Download the endpoints at the same time, each one being parsed as soon as it is downloaded. Each endpoint is
+	 * downloaded with a conditional request, a not modified one is read from its snapshot.
+	 *
+	 * @param fetcher  The concurrent downloader.
+	 * @param mapper   The JSON mapper.
+	 * @param baseUrl  The catalog base URL, without trailing <code>/</code>.
+	 * @param caches   The snapshot of each endpoint URL. Its validators are persisted by the caller once the catalog
+	 *                 is imported.
+	 * @param download The download metrics.
+	 * @return The structured catalog, completed exceptionally when an endpoint is not available: a partial catalog
+	 *         would retire the missing prices.
+	 */
+	public static CompletableFuture<OvhStructuredCatalog> fetch(final OvhCatalogFetcher fetcher, final ObjectMapper mapper,
+			final String baseUrl, final Function<String, OvhCatalogCache> caches, final OvhImportMetrics.Phase download) {
+		final var paths = List.of(FLAVORS_PATH, DATABASE_AVAILABILITY_PATH, DATABASE_CAPABILITIES_PATH, DATABASE_PRICE_PATH);
+		final var catalog = new OvhStructuredCatalog();
+		final var urls = paths.stream().map(p -> baseUrl + p).toList();
+		final var byUrl = urls.stream().collect(Collectors.toMap(Function.identity(), caches));
+		catalog.caches.addAll(byUrl.values());
+		final var digests = new ConcurrentHashMap<String, String>();
+		return fetcher.fetchAll(urls, byUrl::get, download, (url, body) -> {
+			final var path = url.substring(baseUrl.length());
+			digests.put(path, DigestUtils.sha256Hex(body));
+			switch (path) {
+			case FLAVORS_PATH -> catalog.flavors = read(mapper, body, LIST_FLAVOR);
+			case DATABASE_AVAILABILITY_PATH -> catalog.databaseAvailability = read(mapper, body, LIST_AVAILABILITY);
+			case DATABASE_CAPABILITIES_PATH -> catalog.databaseCapabilities = mapper.readValue(decompress(body), OvhDatabaseCapabilities.class);
+			default -> catalog.databasePrices = read(mapper, body, LIST_DATABASE_PRICE);
+			}
+		}).thenApply(v -> {
+			// The digest does not depend on the download order
+			catalog.digest = DigestUtils.sha256Hex(paths.stream().map(digests::get).collect(Collectors.joining("|")));
+			return catalog;
+		});
+	}
+
+	/**
+	 * Indicate at least one endpoint has changed since the last successful import.
+	 *
+	 * @return <code>true</code> when an endpoint has been downloaded.
+	 */
+	public boolean isModified() {
+		return caches.stream().anyMatch(OvhCatalogCache::isModified);
+	}
+
+	private static byte[] decompress(final byte[] body) throws IOException {
+		try (var input = OvhCatalogSource.decompress(new ByteArrayInputStream(body))) {
+			return input.readAllBytes();
+		}
+	}
+
+	private static <T> T read(final ObjectMapper mapper, final byte[] body, final TypeReference<T> type) throws IOException {
+		return mapper.readValue(decompress(body), type);
+	}
+
+	/**
+	 * Replace the instance and the database prices of the feed by the ones of the available flavors. An instance
+	 * flavor takes the regional prices of the feed plan having its hourly plan code, a database flavor takes the
+	 * prices of its plan code. The digest of the feed is combined to the one of this catalog.
+	 *
+	 * @param prices The parsed price feed to complete.
+	 */
+	public void join(final OvhAllPrices prices) {
+		joinInstances(prices);
+		joinDatabases(prices);
+		prices.setDigest(DigestUtils.sha256Hex(prices.getDigest() + "|" + digest));
+	}
+
+	private void joinInstances(final OvhAllPrices prices) {
+		// Index the feed rows by plan code and region
+		final var feed = prices.getInstances();
+		final var rows = new HashMap<String, Integer>();
+		for (var i = 0; i < feed.size(); i++) {
+			rows.putIfAbsent(prices.getPlan(feed.getPlan(i)).getPlanCode() + "|" + prices.getRegion(feed.getRegion(i)), i);
+		}
+
+		final var instances = prices.resetColumns(OvhPlanCategory.INSTANCE);
+		final var plans = new HashMap<String, Integer>();
+		final var joined = new HashSet<String>();
+		for (final var flavor : flavors) {
+			final var code = flavor.getPlanCodes() == null ? null : flavor.getPlanCodes().get("hourly");
+			if (!flavor.isAvailable() || code == null) {
+				continue;
+			}
+			final var region = OvhAllPrices.toGlobalRegion(flavor.getRegion());
+			final var key = code + "|" + region;
+			final var row = rows.get(key);
+			if (row != null && joined.add(key)) {
+				final var planId = plans.computeIfAbsent(code, c -> prices.addPlan(newPlan(prices.getPlan(feed.getPlan(row)), flavor)));
+				instances.add(planId, prices.internRegion(region), feed, row);
+			}
+		}
+	}
+
+	/**
+	 * Return the instance plan of a flavor: the specifications of the API, the descriptions of the feed.
+	 */
+	private static OvhPlan newPlan(final OvhPlan feedPlan, final OvhFlavor flavor) {
+		final var plan = copy(feedPlan);
+		plan.setCpu(flavor.getVcpus());
+		plan.setRam(flavor.getRam() / 1000d * 1024); // MB to MiB
+		if (plan.getStorage() == null) {
+			plan.setStorage(flavor.getDisk() + " GB");
+		}
+		return plan;
+	}
+
+	private void joinDatabases(final OvhAllPrices prices) {
+		// Index the descriptions of the feed plans by plan code
+		final var feed = prices.getDatabases();
+		final var feedPlans = new HashMap<String, OvhPlan>();
+		for (var i = 0; i < feed.size(); i++) {
+			final var plan = prices.getPlan(feed.getPlan(i));
+			feedPlans.putIfAbsent(plan.getPlanCode(), plan);
+		}
+		final Map<String, OvhDatabaseCapabilities.Flavor> specs = databaseCapabilities.getFlavors().stream()
+				.collect(Collectors.toMap(OvhDatabaseCapabilities.Flavor::getName, Function.identity(), (a, b) -> a));
+		final var costs = databasePrices.stream().filter(p -> p.getAll() != null)
+				.collect(Collectors.toMap(OvhDatabasePrice::getPlanCode, OvhDatabasePrice::getAll, (a, b) -> a));
+
+		final var databases = prices.resetColumns(OvhPlanCategory.DATABASE);
+		final var plans = new HashMap<String, Integer>();
+		final var joined = new HashSet<String>();
+		for (final var availability : databaseAvailability) {
+			final var code = "databases.%s-%s-%s.hour.consumption".formatted(availability.getEngine(), availability.getPlan(),
+					availability.getFlavor());
+			final var spec = specs.get(availability.getFlavor());
+			final var cost = costs.get(code);
+			final var region = OvhAllPrices.toGlobalRegion(availability.getRegion());
+			if (spec != null && cost != null && joined.add(code + "|" + region)) {
+				final var planId = plans.computeIfAbsent(code, c -> prices.addPlan(newPlan(c, availability, spec, feedPlans.get(c))));
+				databases.add(planId, prices.internRegion(region), cost);
+			}
+		}
+	}
+
+	/**
+	 * Return the database plan of an available flavor: the specifications of the API, the descriptions of the feed
+	 * when available.
+	 */
+	private static OvhPlan newPlan(final String code, final OvhDatabaseAvailability availability, final OvhDatabaseCapabilities.Flavor spec,
+			final OvhPlan feedPlan) {
+		final var plan = feedPlan == null ? new OvhPlan() : copy(feedPlan);
+		plan.setPlanCode(code);
+		plan.setCategory(OvhPlanCategory.DATABASE);
+		plan.setEngine(availability.getEngine());
+		plan.setDatabasePlan(availability.getPlan());
+		plan.setFlavor(availability.getFlavor());
+		plan.setCpu(spec.getCore());
+		plan.setRam(spec.getMemory() * 1024d);
+		plan.setStorage(spec.getStorage() + " GB");
+		return plan;
+	}
+
+	private static OvhPlan copy(final OvhPlan source) {
+		final var plan = new OvhPlan();
+		plan.setPlanCode(source.getPlanCode());
+		plan.setCategory(source.getCategory());
+		plan.setName(source.getName());
+		plan.setCpu(source.getCpu());
+		plan.setRam(source.getRam());
+		plan.setGpu(source.getGpu());
+		plan.setStorage(source.getStorage());
+		plan.setNvme(source.getNvme());
+		plan.setPublicNetwork(source.getPublicNetwork());
+		plan.setPrivateNetwork(source.getPrivateNetwork());
+		plan.setDedicatedNode(source.getDedicatedNode());
+		plan.setPrice(source.getPrice());
+		plan.setEngine(source.getEngine());
+		plan.setDatabasePlan(source.getDatabasePlan());
+		plan.setFlavor(source.getFlavor());
+		return plan;
+	}
+}
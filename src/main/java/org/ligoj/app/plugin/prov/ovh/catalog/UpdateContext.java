@@ -3,13 +3,20 @@
  */
 package org.ligoj.app.plugin.prov.ovh.catalog;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
 import org.ligoj.app.plugin.prov.catalog.AbstractUpdateContext;
+import org.ligoj.app.plugin.prov.model.ProvDatabasePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 
 /**
  * Context used to perform catalog update.
@@ -18,11 +25,128 @@ import lombok.NoArgsConstructor;
 public class UpdateContext extends AbstractUpdateContext {
 
 	/**
-	 * Used regions identifier (lower case) by at least one instance price. This set is iterated by the process
-	 * importing databases prices. This mecanism is required because database prices refers to global region only like
-	 * <code>GRA</code>, not specific datacenter like <code>GRA7</code>
+	 * Modified instance prices not yet written.
 	 */
 	@Getter
-	private Set<String> usedRegions = new HashSet<>();
+	private final List<ProvInstancePrice> dirtyInstancePrices = new ArrayList<>();
+
+	/**
+	 * Amount of modified instance prices written together.
+	 */
+	@Getter
+	@Setter
+	private int batchSize = OvhPriceImport.DEFAULT_BATCH_SIZE;
+
+	/**
+	 * Metrics of the import, shared by all the sections.
+	 */
+	@Getter
+	@Setter
+	private OvhImportMetrics metrics = new OvhImportMetrics();
+
+	/**
+	 * When <code>true</code>, the progress of the steps is reported in the import status.
+	 */
+	@Getter
+	@Setter
+	private boolean reporting;
+
+	/**
+	 * Amount of types whose previous prices are kept in memory.
+	 */
+	@Getter
+	@Setter
+	private int lookupWindow = OvhPriceImport.DEFAULT_LOOKUP_WINDOW;
+
+	/**
+	 * Previous instance prices, by type.
+	 */
+	@Getter
+	@Setter
+	private OvhPriceLookup<ProvInstancePrice> instancePrices;
+
+	/**
+	 * Previous database prices, by type.
+	 */
+	@Getter
+	@Setter
+	private OvhPriceLookup<ProvDatabasePrice> databasePrices;
+
+	/**
+	 * When <code>true</code>, each region is installed by its own thread and the previous prices are looked up by
+	 * region.
+	 */
+	@Getter
+	@Setter
+	private boolean sharded;
+
+	/**
+	 * Prices of the previous import. Empty when all the prices have to be merged.
+	 */
+	@Getter
+	@Setter
+	private OvhPriceSnapshot previousSnapshot = new OvhPriceSnapshot();
+
+	/**
+	 * Prices of this import.
+	 */
+	@Getter
+	@Setter
+	private OvhPriceSnapshot snapshot = new OvhPriceSnapshot();
+
+	/**
+	 * Price codes installed by this import, by price entity name.
+	 */
+	@Getter
+	@Setter
+	private Map<String, Set<String>> installedCodes = new ConcurrentHashMap<>();
+
+	/**
+	 * Identifiers of the prices of the node by code, by price entity name. Loaded once, when a code is unknown by the
+	 * previous import.
+	 */
+	@Getter
+	private final Map<String, Map<String, Integer>> nodePrices = new ConcurrentHashMap<>();
+
+	/**
+	 * Return the price codes installed by this import for a price entity.
+	 *
+	 * @param entity The price entity.
+	 * @return The installed codes. Safe for concurrent writers.
+	 */
+	public Set<String> getInstalledCodes(final Class<?> entity) {
+		return installedCodes.computeIfAbsent(entity.getSimpleName(), e -> ConcurrentHashMap.newKeySet());
+	}
+
+	/**
+	 * Indicate only the added and changed prices are loaded and merged.
+	 *
+	 * @return <code>true</code> when the previous import is usable and not empty.
+	 */
+	public boolean isDelta() {
+		return previousSnapshot.getDigest() != null && previousSnapshot.size() > 0;
+	}
+
+	/**
+	 * Drop the staged instance prices and the price lookups of the current thread.
+	 */
+	public void clearPrices() {
+		getDirtyInstancePrices().clear();
+		setInstancePrices(null);
+		setDatabasePrices(null);
+	}
+
+	/**
+	 * Run the installation of a shared entity such as a type, a term or a region. This context is used by a single
+	 * thread, so the installation is run as is. Installations must not be nested.
+	 *
+	 * @param code      The code of the installed entity.
+	 * @param installer The installation.
+	 * @param <T>       The entity type.
+	 * @return The installed entity.
+	 */
+	public <T> T locked(final String code, final Supplier<T> installer) {
+		return installer.get();
+	}
 
 }
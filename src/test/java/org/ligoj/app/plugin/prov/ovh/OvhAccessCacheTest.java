@@ -0,0 +1,118 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link OvhAccessCache}
+ */
+class OvhAccessCacheTest {
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final AtomicInteger calls = new AtomicInteger();
+
+	private OvhAccessCache newCache() {
+		return new OvhAccessCache(Runnable::run, clock::get, 100, 10, 2);
+	}
+
+	private boolean validate(final boolean result) {
+		calls.incrementAndGet();
+		return result;
+	}
+
+	@Test
+	void getTtl() {
+		final var cache = newCache();
+		Assertions.assertTrue(cache.get("1:a", () -> validate(true)));
+		clock.set(79);
+		Assertions.assertTrue(cache.get("1:a", () -> validate(true)));
+		Assertions.assertEquals(1, calls.get());
+
+		// Refreshed in the background before the expiry
+		clock.set(80);
+		Assertions.assertTrue(cache.get("1:a", () -> validate(false)));
+		Assertions.assertEquals(2, calls.get());
+		Assertions.assertFalse(cache.get("1:a", () -> validate(false)));
+
+		// A refused access expires sooner
+		clock.set(89);
+		Assertions.assertFalse(cache.get("1:a", () -> validate(true)));
+		Assertions.assertEquals(2, calls.get());
+		clock.set(90);
+		Assertions.assertTrue(cache.get("1:a", () -> validate(true)));
+		Assertions.assertEquals(3, calls.get());
+	}
+
+	@Test
+	void getCredentials() {
+		final var cache = newCache();
+		Assertions.assertTrue(cache.get("1:a", () -> validate(true)));
+		Assertions.assertFalse(cache.get("1:b", () -> validate(false)));
+		Assertions.assertEquals(2, calls.get());
+	}
+
+	@Test
+	void getFailed() {
+		final var cache = newCache();
+		Assertions.assertThrows(IllegalStateException.class, () -> cache.get("1:a", () -> {
+			throw new IllegalStateException();
+		}));
+		Assertions.assertEquals(0, cache.size());
+		Assertions.assertTrue(cache.get("1:a", () -> validate(true)));
+	}
+
+	@Test
+	void getBounded() {
+		final var cache = newCache();
+		cache.get("1:a", () -> validate(true));
+		cache.get("2:a", () -> validate(true));
+		cache.get("3:a", () -> validate(true));
+		Assertions.assertTrue(cache.size() <= 2);
+
+		// The last validation is kept
+		cache.get("3:a", () -> validate(true));
+		Assertions.assertEquals(3, calls.get());
+	}
+
+	@Test
+	void getCoalesced() throws Exception {
+		final var cache = newCache();
+		final var started = new CountDownLatch(1);
+		final var release = new CountDownLatch(1);
+		final var executor = Executors.newFixedThreadPool(4);
+		try {
+			final var first = executor.submit(() -> cache.get("1:a", () -> {
+				started.countDown();
+				try {
+					release.await();
+				} catch (final InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				return validate(true);
+			}));
+			started.await();
+			final var others = executor.invokeAll(Collections.nCopies(3, () -> cache.get("1:a", () -> validate(false))), 100,
+					TimeUnit.MILLISECONDS);
+
+			// The concurrent lookups wait for the pending validation
+			others.forEach(f -> Assertions.assertTrue(f.isCancelled()));
+			release.countDown();
+			Assertions.assertTrue(first.get());
+			Assertions.assertTrue(cache.get("1:a", () -> validate(false)));
+			Assertions.assertEquals(1, calls.get());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+}
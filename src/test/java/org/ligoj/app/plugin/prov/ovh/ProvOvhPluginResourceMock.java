@@ -3,12 +3,14 @@
  */
 package org.ligoj.app.plugin.prov.ovh;
 
+import java.util.Map;
+
 /**
  * Configuration class used to mock AWS calls
  */
 public class ProvOvhPluginResourceMock extends ProvOvhPluginResource {
 	@Override
-	public boolean validateAccess(int subscription) {
+	protected boolean validateProjectAccess(Map<String, String> parameters) {
 		return true;
 	}
 
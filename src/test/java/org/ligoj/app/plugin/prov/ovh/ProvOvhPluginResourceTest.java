@@ -4,6 +4,7 @@
 package org.ligoj.app.plugin.prov.ovh;
 
 import jakarta.transaction.Transactional;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.hc.core5.http.HttpStatus;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -120,6 +121,22 @@ class ProvOvhPluginResourceTest extends AbstractServerTest {
 		Assertions.assertEquals("GET", request.getMethod());
 	}
 
+	@Test
+	void sign() {
+		final var signer = new OvhRequestSigner("KEY", "SECRET", "CONSUMER");
+		final var expected = "$1$" + DigestUtils.sha1Hex("SECRET+CONSUMER+GET+https://eu.api.ovh.com/1.0/++1700000000");
+		Assertions.assertEquals(expected, signer.sign("GET", "https://eu.api.ovh.com/1.0/", "", 1700000000));
+
+		// The digest is reused
+		Assertions.assertEquals(expected, signer.sign("GET", "https://eu.api.ovh.com/1.0/", "", 1700000000));
+		final var headers = new HashMap<String, String>();
+		signer.addHeaders(headers, "GET", "https://eu.api.ovh.com/1.0/", "", 1700000000);
+		Assertions.assertEquals(expected, headers.get("X-Ovh-Signature"));
+		Assertions.assertEquals("1700000000", headers.get("X-Ovh-Timestamp"));
+		Assertions.assertEquals("KEY", headers.get("X-Ovh-Application"));
+		Assertions.assertEquals("CONSUMER", headers.get("X-Ovh-Consumer"));
+	}
+
 	@Test
 	void create() {
 		final var resource = newSpyResource();
@@ -144,9 +161,13 @@ class ProvOvhPluginResourceTest extends AbstractServerTest {
 	@Test
 	void checkSubscriptionStatusDown() {
 		final var resource = newSpyResource();
-		Mockito.doReturn(false).when(resource).validateAccess(ArgumentMatchers.anyInt());
+		Mockito.doReturn(false).when(resource).validateProjectAccess(ArgumentMatchers.anyMap());
 		final var status = resource.checkSubscriptionStatus(subscription, null, new HashMap<>());
 		Assertions.assertFalse(status.getStatus().isUp());
+
+		// The validation uses the parameters resolved by the calling thread
+		Mockito.verify(resource).validateProjectAccess(ArgumentMatchers.anyMap());
+		Mockito.verify(resource, Mockito.never()).validateAccess(ArgumentMatchers.anyInt());
 	}
 
 	@Test
@@ -159,6 +180,21 @@ class ProvOvhPluginResourceTest extends AbstractServerTest {
 		Assertions.assertFalse(validateAccess(HttpStatus.SC_FORBIDDEN));
 	}
 
+	@SuppressWarnings("unchecked")
+	@Test
+	void validateAccessNoCookie() {
+		final var resource = newSpyResource();
+		Mockito.doAnswer(i -> new CurlRequest("GET", MOCK_URL, null)).when(resource).newRequest(ArgumentMatchers.anyString(),
+				ArgumentMatchers.any(Map.class));
+		httpServer.stubFor(get(urlEqualTo("/mock")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("Set-Cookie", "session=1")));
+		httpServer.start();
+		Assertions.assertTrue(resource.validateAccess(subscription));
+		Assertions.assertTrue(resource.validateAccess(subscription));
+
+		// The shared client does not send back the cookies of a previous call
+		httpServer.verify(2, getRequestedFor(urlEqualTo("/mock")).withoutHeader("Cookie"));
+	}
+
 	@Test
 	void checkStatus() {
 		Assertions.assertTrue(validateAccess(HttpStatus.SC_OK));
@@ -0,0 +1,161 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
+import org.ligoj.app.plugin.prov.model.ProvInstanceType;
+
+/**
+ * Test class of {@link ConcurrentUpdateContext}
+ */
+class ConcurrentUpdateContextTest {
+
+	private static final int THREADS = 16;
+
+	private static final int CODES = 200;
+
+	private final Map<String, AtomicInteger> created = new ConcurrentHashMap<>();
+
+	private final Map<String, AtomicInteger> inside = new ConcurrentHashMap<>();
+
+	private final AtomicInteger overlaps = new AtomicInteger();
+
+	/**
+	 * Install a type the way the import does: created once, then merged with the specifications of its code.
+	 */
+	private ProvInstanceType installType(final UpdateContext context, final String code) {
+		return context.locked(code, () -> {
+			if (inside.computeIfAbsent(code, c -> new AtomicInteger()).incrementAndGet() > 1) {
+				overlaps.incrementAndGet();
+			}
+			try {
+				final var type = context.getInstanceTypes().computeIfAbsent(code, c -> {
+					created.computeIfAbsent(c, n -> new AtomicInteger()).incrementAndGet();
+					final var newType = new ProvInstanceType();
+					newType.setCode(c);
+					return newType;
+				});
+				type.setName(code);
+				type.setCpu((double) (code.length() + code.hashCode() % 8));
+				Thread.yield();
+				type.setRam(code.hashCode() & 0xFFFF);
+				return type;
+			} finally {
+				inside.get(code).decrementAndGet();
+			}
+		});
+	}
+
+	private List<String> newCodes(final long seed) {
+		final var codes = IntStream.range(0, CODES * 5).mapToObj(i -> "b2-" + i % CODES).collect(Collectors.toList());
+		Collections.shuffle(codes, new Random(seed));
+		return codes;
+	}
+
+	private void runAll(final List<Callable<Object>> tasks) throws Exception {
+		final var executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			for (final var future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	void lockedStress() throws Exception {
+		// Serial reference
+		final var serial = new UpdateContext();
+		newCodes(0).forEach(c -> installType(serial, c));
+		final var expected = serial.getInstanceTypes();
+		created.clear();
+
+		// Same installations from many threads, each one in its own order
+		final var context = new ConcurrentUpdateContext();
+		final var start = new CountDownLatch(1);
+		final var tasks = new ArrayList<Callable<Object>>();
+		for (var t = 0; t < THREADS; t++) {
+			final var codes = newCodes(t + 1L);
+			tasks.add(() -> {
+				start.await();
+				codes.forEach(c -> installType(context, c));
+				return null;
+			});
+		}
+		start.countDown();
+		runAll(tasks);
+
+		// Each type is created once, never installed by two threads at once, and equals to the serial one
+		Assertions.assertEquals(0, overlaps.get());
+		Assertions.assertEquals(CODES, created.size());
+		created.forEach((code, count) -> Assertions.assertEquals(1, count.get(), code));
+		Assertions.assertEquals(expected.keySet(), context.getInstanceTypes().keySet());
+		expected.forEach((code, type) -> {
+			final var actual = context.getInstanceTypes().get(code);
+			Assertions.assertEquals(type.getName(), actual.getName());
+			Assertions.assertEquals(type.getCpu(), actual.getCpu());
+			Assertions.assertEquals(type.getRam(), actual.getRam());
+		});
+	}
+
+	@Test
+	void setConcurrentMaps() throws Exception {
+		final var context = new ConcurrentUpdateContext();
+		context.setInstanceTypes(new HashMap<>());
+		final var tasks = new ArrayList<Callable<Object>>();
+		for (var t = 0; t < THREADS; t++) {
+			final var thread = t;
+			tasks.add(() -> {
+				for (var i = 0; i < 1000; i++) {
+					context.getInstanceTypes().put(thread + "-" + i, new ProvInstanceType());
+					context.getInstalledCodes(ProvInstancePrice.class).add(thread + "-" + i);
+				}
+				return null;
+			});
+		}
+		runAll(tasks);
+		Assertions.assertEquals(THREADS * 1000, context.getInstanceTypes().size());
+		Assertions.assertEquals(THREADS * 1000, context.getInstalledCodes(ProvInstancePrice.class).size());
+	}
+
+	@Test
+	void getDirtyInstancePricesByThread() throws Exception {
+		final var context = new ConcurrentUpdateContext();
+		final var sizes = new ConcurrentHashMap<Integer, Integer>();
+		final var tasks = new ArrayList<Callable<Object>>();
+		for (var t = 0; t < THREADS; t++) {
+			final var thread = t;
+			tasks.add(() -> {
+				for (var i = 0; i <= thread; i++) {
+					context.getDirtyInstancePrices().add(new ProvInstancePrice());
+				}
+				sizes.put(thread, context.getDirtyInstancePrices().size());
+				context.getDirtyInstancePrices().clear();
+				return null;
+			});
+		}
+		runAll(tasks);
+
+		// Each thread stages its own prices
+		sizes.forEach((thread, size) -> Assertions.assertEquals(thread + 1, size.intValue()));
+		Assertions.assertTrue(context.getDirtyInstancePrices().isEmpty());
+	}
+}
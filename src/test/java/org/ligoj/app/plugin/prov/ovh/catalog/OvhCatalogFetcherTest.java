@@ -0,0 +1,166 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Test class of {@link OvhCatalogFetcher}
+ */
+class OvhCatalogFetcherTest {
+
+	private HttpServer server;
+
+	private String baseUrl;
+
+	private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+
+	private final AtomicInteger running = new AtomicInteger();
+
+	private final AtomicInteger maxRunning = new AtomicInteger();
+
+	@BeforeEach
+	void startServer() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.createContext("/", exchange -> {
+			final var path = exchange.getRequestURI().getPath();
+			final var call = calls.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+			maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+			try {
+				Thread.sleep(20);
+			} catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			final int status;
+			if (path.startsWith("/tagged")) {
+				exchange.getResponseHeaders().add("ETag", "\"t\"");
+				status = "\"t\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match")) ? 304 : 200;
+			} else if (path.startsWith("/missing")) {
+				status = 404;
+			} else if (path.startsWith("/unstable") && call == 1) {
+				status = 503;
+			} else {
+				status = 200;
+			}
+			final var body = status == 304 ? new byte[0] : path.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+			try (var output = exchange.getResponseBody()) {
+				output.write(body);
+			}
+		});
+		server.start();
+		baseUrl = "http://localhost:" + server.getAddress().getPort();
+	}
+
+	@AfterEach
+	void stopServer() {
+		server.stop(0);
+	}
+
+	private OvhCatalogFetcher newFetcher(final int concurrency) {
+		return new OvhCatalogFetcher(HttpClient.newHttpClient(), concurrency, Duration.ofSeconds(5), 2, Duration.ofMillis(1));
+	}
+
+	@Test
+	void fetchAll() {
+		final var payloads = new ConcurrentHashMap<String, String>();
+		final var download = new OvhImportMetrics().get(OvhImportMetrics.DOWNLOAD);
+		try (var fetcher = newFetcher(2)) {
+			final var urls = List.of(baseUrl + "/a", baseUrl + "/b", baseUrl + "/c", baseUrl + "/d", baseUrl + "/e");
+			fetcher.fetchAll(urls, download, (url, body) -> payloads.put(url, new String(body, StandardCharsets.UTF_8))).join();
+		}
+		Assertions.assertEquals(5, payloads.size());
+		Assertions.assertEquals("/c", payloads.get(baseUrl + "/c"));
+		Assertions.assertEquals(5, download.getItems().get());
+		Assertions.assertEquals(10, download.getBytes().get());
+
+		// Concurrency is capped
+		Assertions.assertTrue(maxRunning.get() <= 2);
+	}
+
+	@Test
+	void fetchAllNotModified(@TempDir final Path cache) throws IOException {
+		final var url = baseUrl + "/tagged";
+		final var payloads = new ConcurrentHashMap<String, String>();
+		final var download = new OvhImportMetrics().get(OvhImportMetrics.DOWNLOAD);
+		try (var fetcher = newFetcher(1)) {
+			final var first = new OvhCatalogCache(cache, url);
+			fetcher.fetchAll(List.of(url), u -> first, download, (u, body) -> payloads.put(u, new String(body, StandardCharsets.UTF_8))).join();
+			Assertions.assertTrue(first.isModified());
+			first.commit();
+
+			// The snapshot is read when not modified
+			payloads.clear();
+			final var second = new OvhCatalogCache(cache, url);
+			fetcher.fetchAll(List.of(url), u -> second, download, (u, body) -> payloads.put(u, new String(body, StandardCharsets.UTF_8))).join();
+			Assertions.assertFalse(second.isModified());
+		}
+		Assertions.assertEquals("/tagged", payloads.get(url));
+		Assertions.assertEquals(1, download.getItems().get());
+		Assertions.assertEquals(2, calls.get("/tagged").get());
+	}
+
+	@Test
+	void fetchAllRetry() {
+		final var payloads = new ConcurrentHashMap<String, String>();
+		try (var fetcher = newFetcher(2)) {
+			fetcher.fetchAll(List.of(baseUrl + "/unstable"), new OvhImportMetrics().get(OvhImportMetrics.DOWNLOAD),
+					(url, body) -> payloads.put(url, new String(body, StandardCharsets.UTF_8))).join();
+		}
+		Assertions.assertEquals("/unstable", payloads.get(baseUrl + "/unstable"));
+		Assertions.assertEquals(2, calls.get("/unstable").get());
+	}
+
+	@Test
+	void fetchAllFailures() {
+		final var payloads = new ConcurrentHashMap<String, String>();
+		try (var fetcher = newFetcher(2)) {
+			final var urls = List.of(baseUrl + "/missing1", baseUrl + "/a", baseUrl + "/missing2");
+			final var future = fetcher.fetchAll(urls, new OvhImportMetrics().get(OvhImportMetrics.DOWNLOAD),
+					(url, body) -> payloads.put(url, new String(body, StandardCharsets.UTF_8)));
+			final var e = Assertions.assertThrows(CompletionException.class, future::join);
+
+			// All the failures are reported, the available payloads are still handled
+			Assertions.assertInstanceOf(IOException.class, e.getCause());
+			Assertions.assertEquals(2, e.getCause().getSuppressed().length);
+			Assertions.assertEquals(1, payloads.size());
+		}
+
+		// A missing endpoint is not retried
+		Assertions.assertEquals(1, calls.get("/missing1").get());
+	}
+
+	@Test
+	void fetchAllParseFailure() {
+		try (var fetcher = newFetcher(1)) {
+			final var future = fetcher.fetchAll(List.of(baseUrl + "/a"), new OvhImportMetrics().get(OvhImportMetrics.DOWNLOAD),
+					(url, body) -> {
+						throw new IOException("Invalid payload");
+					});
+			final var e = Assertions.assertThrows(CompletionException.class, future::join);
+			Assertions.assertEquals("Invalid payload", e.getCause().getSuppressed()[0].getMessage());
+		}
+	}
+}
@@ -0,0 +1,46 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test class of {@link OvhNumberParser}
+ */
+class OvhNumberParserTest {
+
+	@Test
+	void parse() {
+		Assertions.assertEquals(7d, OvhNumberParser.parse("7 GB"));
+		Assertions.assertEquals(7d, OvhNumberParser.parse("7\u00a0GB"));
+		Assertions.assertEquals(2d, OvhNumberParser.parse("2 vCores"));
+		Assertions.assertEquals(0.0123d, OvhNumberParser.parse("0.0123/hour"));
+		Assertions.assertEquals(0.0741d, OvhNumberParser.parse("0.0741 /vCore"));
+		Assertions.assertEquals(300d, OvhNumberParser.parse("300 Mbps max."));
+		Assertions.assertEquals(1120d, OvhNumberParser.parse("1,120"));
+		Assertions.assertEquals(65.6d, OvhNumberParser.parse("65.60"));
+		Assertions.assertEquals(0.5d, OvhNumberParser.parse(".5"));
+		Assertions.assertEquals(-1.5d, OvhNumberParser.parse("-1.5"));
+		Assertions.assertEquals(12345678901234567890d, OvhNumberParser.parse("12345678901234567890"));
+	}
+
+	@Test
+	void parseExact() {
+		for (final var value : new String[] { "0.1", "0.0813", "1.97", "0.0619", "123456.789" }) {
+			Assertions.assertEquals(Double.parseDouble(value), OvhNumberParser.parse(value));
+		}
+	}
+
+	@Test
+	void parseInvalid() {
+		Assertions.assertEquals("Missing OVH numeric value",
+				Assertions.assertThrows(IllegalArgumentException.class, () -> OvhNumberParser.parse(null)).getMessage());
+		Assertions.assertEquals("Invalid OVH numeric value 'Included'",
+				Assertions.assertThrows(IllegalArgumentException.class, () -> OvhNumberParser.parse("Included")).getMessage());
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OvhNumberParser.parse(""));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OvhNumberParser.parse("2 x 1.9 TB"));
+		Assertions.assertThrows(IllegalArgumentException.class, () -> OvhNumberParser.parse("1.2.3"));
+	}
+}
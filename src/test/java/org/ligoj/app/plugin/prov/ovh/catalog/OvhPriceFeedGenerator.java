@@ -0,0 +1,198 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.function.DoubleFunction;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Synthetic OVH price feed generator, with the same shape as the <code>price.json</code> API: a plan has a
+ * <code>planCode</code>, a <code>term</code>, <code>attr-N</code> properties and a price map per region. The output is
+ * deterministic for a given configuration, and can be served by the mock server:
+ * <code>httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withBody(generator.generate())))</code>.
+ */
+@Getter
+@Setter
+public class OvhPriceFeedGenerator {
+
+	/**
+	 * Real region codes used first, the next ones are synthetic.
+	 */
+	private static final String[] REGIONS = { "GRA", "SBG", "BHS", "WAW", "SGP", "SYD", "LON", "FRA" };
+
+	/**
+	 * Instance families, with the RAM per vCPU in GB.
+	 */
+	private static final String[] FAMILIES = { "b2-", "c2-", "d2-" };
+
+	private static final int[] RAM_PER_CPU = { 4, 2, 8 };
+
+	private static final String[] DATABASE_PLANS = { "essential", "business", "enterprise" };
+
+	private static final String[] VOLUMES = { "classic", "high-speed", "high-speed-gen2" };
+
+	/**
+	 * Price increase of a drifted price for each version.
+	 */
+	private static final double DRIFT_STEP = 0.1;
+
+	/**
+	 * Amount of regions.
+	 */
+	private int regions = 3;
+
+	/**
+	 * Amount of instance flavors, spread among the families.
+	 */
+	private int flavors = 10;
+
+	/**
+	 * Amount of database flavors per engine.
+	 */
+	private int databaseFlavors = 4;
+
+	/**
+	 * Database engines.
+	 */
+	private List<String> engines = List.of("mysql", "postgresql");
+
+	/**
+	 * Amount of block storage classes.
+	 */
+	private int storageClasses = 2;
+
+	/**
+	 * Ratio of the regional prices increased by each version, from <code>0</code> to <code>1</code>.
+	 */
+	private double drift = 0.1;
+
+	/**
+	 * Feed version, <code>0</code> for the base prices.
+	 */
+	private int version;
+
+	/**
+	 * Seed of the drift selection.
+	 */
+	private long seed;
+
+	/**
+	 * Return the generated price feed.
+	 *
+	 * @return The JSON price feed.
+	 * @throws JsonProcessingException When the feed cannot be serialized.
+	 */
+	public String generate() throws JsonProcessingException {
+		final var regionNames = new ArrayList<String>(regions);
+		for (var i = 0; i < regions; i++) {
+			regionNames.add(getRegion(i));
+		}
+		final var regionList = String.join(" ", regionNames);
+		final var plans = new ArrayList<Map<String, Object>>();
+		for (var i = 0; i < flavors; i++) {
+			final var family = i % FAMILIES.length;
+			final var cpu = i / FAMILIES.length % 32 + 1;
+			final var ram = cpu * RAM_PER_CPU[family];
+			final var name = FAMILIES[family] + (i / FAMILIES.length + 1);
+			final var hourly = 0.005 * cpu + 0.002 * ram;
+			final var plan = newPlan(name + ".consumption", "linux.hourly", regionList, name, ram + " GB", String.valueOf(cpu),
+					cpu * 25 + " GB SSD", "250 Mbps guaranteed", "300 Mbps max.", format(hourly));
+			addRegions(plan, regionNames, d -> Map.of("linux.hourly", format(hourly * d), "linux.monthly", format(hourly * 500 * d),
+					"windows.hourly", format((hourly + 0.03 * cpu) * d), "windows.monthly", format((hourly + 0.03 * cpu) * 500 * d)));
+			plans.add(plan);
+		}
+		for (final var engine : engines) {
+			for (var i = 0; i < databaseFlavors; i++) {
+				final var dbPlan = DATABASE_PLANS[i % DATABASE_PLANS.length];
+				final var ram = 2 * (i + 1);
+				final var hourly = 0.015 * ram;
+				final var plan = newPlan("databases.%s-%s-db1-%d.hour.consumption".formatted(engine, dbPlan, i + 1), "hourly", regionList,
+						"%s DB1-%d".formatted(dbPlan, i + 1), ram + "\u00a0GB", String.valueOf(i / 2 + 1), ram * 20 + "\u00a0GB",
+						"250\u00a0Mbps", "250\u00a0Mbps max.", i % DATABASE_PLANS.length == 0 ? "1" : "3", format(hourly));
+				addRegions(plan, regionNames, d -> Map.of("hourly", format(hourly * d), "monthly", format(hourly * 730 * d)));
+				plans.add(plan);
+			}
+		}
+		for (var i = 0; i < storageClasses; i++) {
+			final var volume = i < VOLUMES.length ? VOLUMES[i] : "class-" + i;
+			final var price = 0.04 * (i + 1);
+			final var plan = newPlan("volume." + volume + ".consumption", "monthly", regionList, volume, "250 IOPS guaranteed", "_",
+					format(price));
+			addRegions(plan, regionNames, d -> Map.of("monthly", format(price * d)));
+			plans.add(plan);
+		}
+		final var objectStorage = newPlan("storage-standard.monthly.postpaid", "monthly", regionNames.get(0), "Object Storage", "0.008");
+		addRegions(objectStorage, regionNames.subList(0, 1), d -> Map.of("monthly", format(0.008 * d)));
+		plans.add(objectStorage);
+		final var archive = newPlan("archive.consumption", "hourly", regionList, "Secured cold storage", "0.0024");
+		addRegions(archive, regionNames, d -> Map.of("monthly", format(0.0024 * d)));
+		plans.add(archive);
+		final var snapshot = newPlan("snapshot.consumption", "hourly", regionList, "Storage replicated x3", "0.0122");
+		addRegions(snapshot, regionNames, d -> Map.of("monthly", format(0.0122 * d)));
+		plans.add(snapshot);
+		return new ObjectMapper().writeValueAsString(plans);
+	}
+
+	/**
+	 * Return the region code: the real ones, then synthetic letter only codes since the trailing digits are not part of
+	 * the global region.
+	 */
+	private String getRegion(final int index) {
+		if (index < REGIONS.length) {
+			return REGIONS[index];
+		}
+		final var synthetic = index - REGIONS.length;
+		return "Z" + (char) ('A' + synthetic / 26 % 26) + (char) ('A' + synthetic % 26);
+	}
+
+	private Map<String, Object> newPlan(final String planCode, final String term, final String regionList, final String... attributes) {
+		final var plan = new LinkedHashMap<String, Object>();
+		plan.put("term", term);
+		plan.put("planCode", planCode);
+		plan.put("regions", regionList);
+		for (var i = 0; i < attributes.length; i++) {
+			plan.put("attr-" + i, attributes[i]);
+		}
+		return plan;
+	}
+
+	/**
+	 * Add the regional prices to a plan, the price factor of each region depends on the drift.
+	 */
+	private void addRegions(final Map<String, Object> plan, final List<String> regionNames,
+			final DoubleFunction<Map<String, String>> regionalPrice) {
+		for (final var region : regionNames) {
+			plan.put(region, regionalPrice.apply(getDrift(plan.get("planCode") + region)));
+		}
+	}
+
+	/**
+	 * Return the price factor of a regional price for the current version.
+	 */
+	private double getDrift(final String key) {
+		var factor = 1d;
+		for (var v = 1; v <= version; v++) {
+			if (new Random(Objects.hash(seed, key, v)).nextDouble() < drift) {
+				factor *= 1 + DRIFT_STEP;
+			}
+		}
+		return factor;
+	}
+
+	private String format(final double price) {
+		return String.format(Locale.ENGLISH, "%.4f", price);
+	}
+}
@@ -0,0 +1,235 @@
+/*
+ * Licensed under MIT (https://github.com/ligoj/ligoj/blob/master/LICENSE)
+ */
+package org.ligoj.app.plugin.prov.ovh.catalog;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.apache.hc.core5.http.HttpStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.ligoj.app.AbstractServerTest;
+import org.ligoj.app.api.SubscriptionMode;
+import org.ligoj.app.model.Node;
+import org.ligoj.app.plugin.prov.catalog.AbstractUpdateContext;
+import org.ligoj.app.plugin.prov.catalog.ImportCatalogResource;
+import org.ligoj.app.plugin.prov.model.ProvLocation;
+import org.ligoj.bootstrap.resource.system.configuration.ConfigurationResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test class of the {@link OvhPriceImport} modes installing the sections or the regions in their own transactions.
+ * These transactions only see committed data, so this test is not transactional: the nodes are committed before each
+ * test, and the catalog is removed after it.
+ */
+@ExtendWith(SpringExtension.class)
+@ContextConfiguration(locations = "classpath:/META-INF/spring/application-context-test.xml")
+class OvhPriceImportModeTest extends AbstractServerTest {
+
+	private static final String NODE = "service:prov:ovh";
+
+	/**
+	 * Catalog entities of the node, in deletion order.
+	 */
+	private static final List<String> CATALOG = List.of("ProvInstancePrice", "ProvDatabasePrice", "ProvStoragePrice", "ProvSupportPrice",
+			"ProvInstanceType", "ProvDatabaseType", "ProvStorageType", "ProvSupportType", "ProvInstancePriceTerm", "ProvLocation",
+			"ImportCatalogStatus");
+
+	@Autowired
+	private ConfigurationResource configuration;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transaction;
+
+	private OvhPriceImport resource;
+
+	private final OvhPriceFeedGenerator generator = new OvhPriceFeedGenerator();
+
+	@BeforeEach
+	void prepareData(@TempDir final Path cache) {
+		transaction = new TransactionTemplate(transactionManager);
+		transaction.executeWithoutResult(s -> {
+			final var prov = new Node();
+			prov.setId("service:prov");
+			prov.setName("Provisioning");
+			prov.setMode(SubscriptionMode.LINK);
+			em.persist(prov);
+			final var ovh = new Node();
+			ovh.setId(NODE);
+			ovh.setName("Provisioning OVH");
+			ovh.setMode(SubscriptionMode.LINK);
+			ovh.setRefined(prov);
+			em.persist(ovh);
+		});
+		initSpringSecurityContext(DEFAULT_USER);
+		clearAllCache();
+
+		final var helper = new ImportCatalogResource();
+		applicationContext.getAutowireCapableBeanFactory().autowireBean(helper);
+		resource = newResource();
+		resource.setImportCatalogResource(helper);
+
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		generator.setFlavors(6);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+	}
+
+	/**
+	 * Return the tested resource, autowired.
+	 */
+	private OvhPriceImport newResource() {
+		final var newResource = new OvhPriceImport();
+		applicationContext.getAutowireCapableBeanFactory().autowireBean(newResource);
+		return newResource;
+	}
+
+	@AfterEach
+	void cleanData() {
+		transaction.executeWithoutResult(s -> {
+			CATALOG.forEach(e -> em.createQuery("DELETE FROM " + e).executeUpdate());
+			em.createQuery("DELETE FROM Node WHERE id = :id").setParameter("id", NODE).executeUpdate();
+			em.createQuery("DELETE FROM Node WHERE id = :id").setParameter("id", "service:prov").executeUpdate();
+		});
+		List.of(OvhPriceImport.CONF_CACHE_DIR, OvhPriceImport.CONF_API_PRICES, OvhPriceImport.CONF_MODE, OvhPriceImport.CONF_REGION_WORKERS,
+				NODE + OvhPriceImport.CONF_DIGEST).forEach(configuration::delete);
+	}
+
+	/**
+	 * Install the catalog in a given mode, within a transaction as the import task does.
+	 */
+	private void install(final OvhImportMode mode, final boolean force) {
+		configuration.put(OvhPriceImport.CONF_MODE, mode.name());
+		transaction.executeWithoutResult(s -> {
+			resource.getImportCatalogResource().endTask(NODE, false);
+			resource.getImportCatalogResource().startTask(NODE, t -> {
+				t.setLocation(null);
+				t.setNbPrices(0);
+				t.setNbTypes(0);
+				t.setWorkload(0);
+				t.setDone(0);
+				t.setPhase(null);
+			});
+		});
+		transaction.executeWithoutResult(s -> {
+			try {
+				resource.install(force);
+			} catch (final IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		});
+	}
+
+	/**
+	 * Return the cost of each price of an entity.
+	 */
+	private Map<String, Double> getCosts(final String entity) {
+		return em.createQuery("SELECT code, cost FROM " + entity, Object[].class).getResultList().stream()
+				.collect(Collectors.toMap(r -> (String) r[0], r -> (Double) r[1]));
+	}
+
+	/**
+	 * Return the cost of each price of the catalog, by entity.
+	 */
+	private Map<String, Map<String, Double>> getCatalog() {
+		return CATALOG.subList(0, 4).stream().collect(Collectors.toMap(e -> e, this::getCosts));
+	}
+
+	/**
+	 * The parallel sections install the same prices as the serial import.
+	 */
+	@Test
+	void installParallel() {
+		install(OvhImportMode.PARALLEL, false);
+		final var parallel = getCatalog();
+		Assertions.assertEquals(72, parallel.get("ProvInstancePrice").size());
+		Assertions.assertEquals(48, parallel.get("ProvDatabasePrice").size());
+		Assertions.assertFalse(parallel.get("ProvStoragePrice").isEmpty());
+		Assertions.assertFalse(parallel.get("ProvSupportPrice").isEmpty());
+		Assertions.assertEquals(72, resource.getLastMetrics().get(OvhImportMetrics.VM).getInserted().get());
+
+		// Same result with the serial mode
+		install(OvhImportMode.SERIAL, true);
+		Assertions.assertEquals(parallel, getCatalog());
+
+		// Same result when the parallel sections update the prices
+		install(OvhImportMode.PARALLEL, true);
+		Assertions.assertEquals(parallel, getCatalog());
+	}
+
+	/**
+	 * The regions installed at the same time give the same prices as the serial import.
+	 */
+	@Test
+	void installRegion() {
+		install(OvhImportMode.REGION, false);
+		final var region = getCatalog();
+		Assertions.assertEquals(72, region.get("ProvInstancePrice").size());
+		Assertions.assertEquals(48, region.get("ProvDatabasePrice").size());
+		Assertions.assertFalse(region.get("ProvStoragePrice").isEmpty());
+		Assertions.assertFalse(region.get("ProvSupportPrice").isEmpty());
+
+		// Same result with the serial mode
+		install(OvhImportMode.SERIAL, true);
+		Assertions.assertEquals(region, getCatalog());
+
+		// Same result when the regions update the prices, with fewer workers than regions
+		configuration.put(OvhPriceImport.CONF_REGION_WORKERS, "2");
+		install(OvhImportMode.REGION, true);
+		Assertions.assertEquals(region, getCatalog());
+	}
+
+	/**
+	 * A failed region rolls back its own prices only, and leaves none of them to the next region of its worker.
+	 */
+	@Test
+	void installRegionFailure() {
+		configuration.put(OvhPriceImport.CONF_REGION_WORKERS, "1");
+		final var helper = resource.getImportCatalogResource();
+		final var calls = new AtomicInteger();
+		resource = new OvhPriceImport() {
+			@Override
+			protected ProvLocation installRegion(final AbstractUpdateContext context, final String region) {
+				// Fail once the instance prices of this region are written
+				if ("sbg".equals(region) && Thread.currentThread().getName().startsWith("ovh-catalog-region-") && calls.incrementAndGet() > 6) {
+					throw new IllegalStateException("Region failure");
+				}
+				return super.installRegion(context, region);
+			}
+		};
+		applicationContext.getAutowireCapableBeanFactory().autowireBean(resource);
+		resource.setImportCatalogResource(helper);
+		final var e = Assertions.assertThrows(UncheckedIOException.class, () -> install(OvhImportMode.REGION, false));
+		Assertions.assertEquals("Failed catalog import regions: sbg", e.getCause().getMessage());
+
+		// The other regions are installed
+		final var instances = getCosts("ProvInstancePrice");
+		Assertions.assertEquals(48, instances.size());
+		Assertions.assertTrue(instances.keySet().stream().noneMatch(c -> c.contains("/sbg/")));
+		Assertions.assertTrue(instances.keySet().stream().anyMatch(c -> c.contains("/bhs/")));
+		Assertions.assertTrue(getCosts("ProvDatabasePrice").keySet().stream().noneMatch(c -> c.startsWith("sbg/")));
+		Assertions.assertTrue(getCosts("ProvStoragePrice").keySet().stream().noneMatch(c -> c.toLowerCase(Locale.ENGLISH).startsWith("sbg")));
+	}
+}
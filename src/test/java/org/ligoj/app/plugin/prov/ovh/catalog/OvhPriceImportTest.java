@@ -4,14 +4,24 @@
 package org.ligoj.app.plugin.prov.ovh.catalog;
 
 import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
 import static com.github.tomakehurst.wiremock.client.WireMock.get;
 import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
 import static org.ligoj.app.plugin.prov.quote.instance.QuoteInstanceQuery.builder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.InvocationTargetException;
+import java.net.http.HttpTimeoutException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.transaction.Transactional;
@@ -19,10 +29,13 @@ import jakarta.transaction.Transactional;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.reflect.MethodUtils;
 import org.apache.hc.core5.http.HttpStatus;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.ligoj.app.AbstractServerTest;
 import org.ligoj.app.iam.model.CacheCompany;
 import org.ligoj.app.iam.model.CacheUser;
@@ -37,6 +50,9 @@ import org.ligoj.app.plugin.prov.QuoteVo;
 import org.ligoj.app.plugin.prov.catalog.AbstractImportCatalogResource;
 import org.ligoj.app.plugin.prov.catalog.ImportCatalogResource;
 import org.ligoj.app.plugin.prov.dao.ProvQuoteRepository;
+import org.ligoj.app.plugin.prov.model.ProvDatabasePrice;
+import org.ligoj.app.plugin.prov.model.ProvDatabaseType;
+import org.ligoj.app.plugin.prov.model.ProvInstancePrice;
 import org.ligoj.app.plugin.prov.model.ProvLocation;
 import org.ligoj.app.plugin.prov.model.ProvQuote;
 import org.ligoj.app.plugin.prov.model.ProvQuoteInstance;
@@ -63,6 +79,11 @@ import org.springframework.test.annotation.Rollback;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 /**
  * Test class of {@link OvhPriceImport}
  */
@@ -207,9 +228,16 @@ class OvhPriceImportTest extends AbstractServerTest {
 				builder().cpu(2).ram(8000).build());
 		Assertions.assertEquals("linux/gra/monthly.postpaid/d2-8", lookup.getPrice().getCode());
 
-		// Install again to check the update without change
+		// Install again to check the update without change: the catalog is not merged again
 		resetImportTask();
 		resource.install(false);
+		Assertions.assertEquals("unchanged", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+		provResource.updateCost(subscription);
+		check(provResource.getConfiguration(subscription), 1302.0d, 2602.6d, 1299.4d);
+
+		// Force the update without change
+		resetImportTask();
+		resource.install(true);
 		provResource.updateCost(subscription);
 		check(provResource.getConfiguration(subscription), 1302.0d, 2602.6d, 1299.4d);
 		checkImportStatus();
@@ -255,10 +283,689 @@ class OvhPriceImportTest extends AbstractServerTest {
 
 	}
 
+	/**
+	 * Statements issued by a forced update must not depend on the amount of instance prices.
+	 */
+	@Test
+	void installStatementCount() throws Exception {
+		configuration.put(OvhPriceImport.CONF_BATCH_SIZE, "50");
+		mockServer();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var nbPrices = em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice", Long.class).getSingleResult();
+		Assertions.assertTrue(nbPrices > 100);
+
+		final var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		try {
+			resetImportTask();
+			resource.install(true);
+			em.flush();
+			final var statements = statistics.getPrepareStatementCount();
+			Assertions.assertTrue(statements < nbPrices, "Too many statements: " + statements + " for " + nbPrices + " prices");
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	/**
+	 * The updated prices are written by JDBC batches of the configured size: one statement per batch instead of one
+	 * per price.
+	 */
+	@Test
+	void installBatchSize() throws Exception {
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		final var generator = new OvhPriceFeedGenerator();
+		generator.setDrift(1);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+
+		// The same amount of drifted prices is updated, without then with batches
+		final var batchSize = em.unwrap(Session.class).getJdbcBatchSize();
+		final var single = countStatements(generator, 1, 1);
+		final var batched = countStatements(generator, 2, 50);
+		Assertions.assertEquals(120, single[1]);
+		Assertions.assertEquals(single[1], batched[1]);
+		Assertions.assertTrue(batched[0] + single[1] / 2 < single[0], "Statements: " + batched[0] + " batched, " + single[0] + " single");
+
+		// The batch size of the caller session is restored
+		Assertions.assertEquals(batchSize, em.unwrap(Session.class).getJdbcBatchSize());
+	}
+
+	/**
+	 * Return the prepared statements and the updated instance prices of a drifted import.
+	 */
+	private long[] countStatements(final OvhPriceFeedGenerator generator, final int version, final int batchSize) throws IOException {
+		generator.setVersion(version);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		configuration.put(OvhPriceImport.CONF_BATCH_SIZE, String.valueOf(batchSize));
+		final var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		try {
+			resetImportTask();
+			resource.install(true);
+			em.flush();
+			em.clear();
+			return new long[] { statistics.getPrepareStatementCount(),
+					statistics.getEntityStatistics(ProvInstancePrice.class.getName()).getUpdateCount() };
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	/**
+	 * Database prices are only installed in the regions where the plan is sold.
+	 */
+	@Test
+	void installDatabaseRegions() throws Exception {
+		mockServer();
+		final var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		try {
+			resource.install(false);
+			em.flush();
+			em.clear();
+
+			// 288 MySQL and PostgreSQL regional rows, with an hourly and a monthly price each
+			Assertions.assertEquals(576, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+			Assertions.assertEquals(0, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice WHERE location.name IN ('hil', 'vin')",
+					Long.class).getSingleResult());
+			Assertions.assertEquals(1, em.createQuery("SELECT COUNT(id) FROM ProvDatabaseType WHERE code = 'essential/db1-4'", Long.class)
+					.getSingleResult());
+
+			// A single statement per regional price, and per database type
+			final var prices = statistics.getEntityStatistics(ProvDatabasePrice.class.getName());
+			Assertions.assertEquals(576, prices.getInsertCount());
+			Assertions.assertEquals(0, prices.getUpdateCount());
+			Assertions.assertEquals(em.createQuery("SELECT COUNT(id) FROM ProvDatabaseType", Long.class).getSingleResult().longValue(),
+					statistics.getEntityStatistics(ProvDatabaseType.class.getName()).getInsertCount());
+
+			// The statements of a forced update do not depend on the amount of regional prices
+			statistics.clear();
+			resetImportTask();
+			resource.install(true);
+			em.flush();
+			final var statements = statistics.getPrepareStatementCount();
+			Assertions.assertTrue(statements < 576, "Too many statements: " + statements + " for 576 database prices");
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+	}
+
+	/**
+	 * The structured endpoints restrict the prices to the available flavors, with the specifications of the API.
+	 */
+	@Test
+	void installStructured() throws Exception {
+		configuration.put(OvhPriceImport.CONF_CATALOG_ENGINE, "structured");
+		mockServer();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals("support", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+
+		// b2-120, c2-7 and r2-60 are available in SBG5, with 2 OS and 2 terms, c2-120 is not available
+		Assertions.assertEquals(12, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice", Long.class).getSingleResult());
+		Assertions.assertEquals(12, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice WHERE location.name = 'sbg'", Long.class)
+				.getSingleResult());
+		Assertions.assertEquals(0, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice WHERE type.code = 'c2-120'", Long.class)
+				.getSingleResult());
+		Assertions.assertEquals(429, em.createQuery("SELECT cost FROM ProvInstancePrice WHERE code = 'linux/sbg/monthly.postpaid/b2-120'",
+				Double.class).getSingleResult(), DELTA);
+		Assertions.assertEquals(32, em.createQuery("SELECT cpu FROM ProvInstanceType WHERE code = 'b2-120'", Double.class).getSingleResult(),
+				DELTA);
+		Assertions.assertEquals(122880, em.createQuery("SELECT ram FROM ProvInstanceType WHERE code = 'b2-120'", Integer.class)
+				.getSingleResult());
+
+		// MySQL and PostgreSQL db1-15 are available in GRA, with 2 terms
+		Assertions.assertEquals(4, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+		Assertions.assertEquals(217.84, em.createQuery("SELECT cost FROM ProvDatabasePrice WHERE code = 'gra/monthly.postpaid/mysql-essential-db1-15'",
+				Double.class).getSingleResult(), DELTA);
+		Assertions.assertEquals(4, em.createQuery("SELECT cpu FROM ProvDatabaseType WHERE code = 'essential/db1-15'", Double.class)
+				.getSingleResult(), DELTA);
+	}
+
+	/**
+	 * With the structured engine, each endpoint is validated with its own entity tag: a not modified feed is still
+	 * imported when an endpoint has changed.
+	 */
+	@Test
+	void installStructuredNotModified(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CATALOG_ENGINE, "structured");
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		mockServer();
+		final var flavors = readMock("flavors.json");
+		mockConditional("/price.json", readMock("prices.json"), "\"v1\"");
+		mockConditional("/flavor.json", flavors, "\"v1\"");
+		mockConditional("/database-availability.json", readMock("database-availability.json"), "\"v1\"");
+		mockConditional("/database-capabilities.json", readMock("database-capabilities.json"), "\"v1\"");
+		mockConditional("/database-price.json", readMock("database-price.json"), "\"v1\"");
+		resource.install(false);
+		Assertions.assertEquals("support", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+
+		// Nothing has changed
+		resetImportTask();
+		resource.install(false);
+		Assertions.assertEquals("unchanged", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+
+		// Only the flavors have changed
+		mockConditional("/flavor.json", flavors.replace("\"ram\": 120000", "\"ram\": 240000"), "\"v2\"");
+		resetImportTask();
+		resource.install(false);
+		Assertions.assertEquals("support", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(245760, em.createQuery("SELECT ram FROM ProvInstanceType WHERE code = 'b2-120'", Integer.class)
+				.getSingleResult());
+	}
+
+	private String readMock(final String file) throws IOException {
+		return IOUtils.toString(new ClassPathResource("mock-server/ovh/" + file).getInputStream(), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Serve a content with an entity tag, and a not modified status to the requests having this tag.
+	 */
+	private void mockConditional(final String path, final String body, final String etag) {
+		httpServer.stubFor(get(urlEqualTo(path)).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("ETag", etag).withBody(body)));
+		httpServer.stubFor(get(urlEqualTo(path)).withHeader("If-None-Match", equalTo(etag)).willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+	}
+
+	/**
+	 * The pipelined import installs the same prices as the serial one, even with a single row in flight.
+	 */
+	@Test
+	void installPipeline() throws Exception {
+		configuration.put(OvhPriceImport.CONF_MODE, "pipeline");
+		configuration.put(OvhPriceImport.CONF_PIPELINE_CAPACITY, "1");
+		mockServer();
+		resource.install(false);
+		checkImportStatus();
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(576, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+
+		// The same content is detected before any installation
+		resetImportTask();
+		resource.install(false);
+		final var status = this.resource.getImportCatalogResource().getTask("service:prov:ovh");
+		Assertions.assertEquals("unchanged", status.getPhase());
+		Assertions.assertEquals(3, status.getDone());
+		Assertions.assertTrue(resource.getLastMetrics().getPhases().stream().map(OvhImportMetrics.Phase::getName)
+				.noneMatch(p -> p.equals(OvhImportMetrics.VM) || p.equals(OvhImportMetrics.DATABASE) || p.equals(OvhImportMetrics.STORAGE)));
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(costs, getInstanceCosts());
+
+		// Same result with the serial mode
+		configuration.put(OvhPriceImport.CONF_MODE, "serial");
+		resetImportTask();
+		resource.install(true);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(costs, getInstanceCosts());
+		Assertions.assertEquals(576, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+	}
+
+	/**
+	 * Import a generated feed, then a drifted version of it.
+	 */
+	@Test
+	void installGenerated() throws Exception {
+		final var generator = new OvhPriceFeedGenerator();
+		generator.setFlavors(6);
+		generator.setDatabaseFlavors(2);
+		final var prices = resource.readPrices(new ByteArrayInputStream(generator.generate().getBytes(StandardCharsets.UTF_8)));
+		Assertions.assertEquals(18, prices.getInstances().size());
+		Assertions.assertEquals(12, prices.getDatabases().size());
+		Assertions.assertEquals(6, prices.getVolumes().size());
+		Assertions.assertEquals(1, prices.getStorage().size());
+		Assertions.assertEquals(3, prices.getArchive().size());
+		Assertions.assertEquals(3, prices.getSnapshots().size());
+
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		final var registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			resource.install(false);
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+		em.flush();
+		em.clear();
+
+		// 18 regional rows with 2 OS and 2 terms, 12 regional rows with 2 terms
+		Assertions.assertEquals(72, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice", Long.class).getSingleResult());
+		Assertions.assertEquals(24, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+		final var metrics = resource.getLastMetrics();
+		Assertions.assertEquals(generator.generate().getBytes(StandardCharsets.UTF_8).length, metrics.get(OvhImportMetrics.DOWNLOAD).getBytes().get());
+		Assertions.assertEquals(72, metrics.get(OvhImportMetrics.VM).getInserted().get());
+		Assertions.assertEquals(72, metrics.get(OvhImportMetrics.VM).getItems().get());
+		Assertions.assertEquals(24, metrics.get(OvhImportMetrics.DATABASE).getInserted().get());
+		Assertions.assertTrue(metrics.get(OvhImportMetrics.CLASSIFY).getItems().get() >= metrics.get(OvhImportMetrics.PARSE).getItems().get());
+		Assertions.assertEquals(72, registry.get(OvhMetricsPublisher.PREFIX + ".rows").tag("phase", OvhImportMetrics.VM).tag("action", "inserted")
+				.counter().count());
+		final var query = "SELECT cost FROM ProvInstancePrice WHERE code = 'linux/gra/monthly.postpaid/b2-1'";
+		final var cost = em.createQuery(query, Double.class).getSingleResult();
+
+		// All the prices are drifted
+		generator.setVersion(1);
+		generator.setDrift(1);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(72, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice", Long.class).getSingleResult());
+		Assertions.assertEquals(cost * 1.1, em.createQuery(query, Double.class).getSingleResult(), 0.01);
+	}
+
+	/**
+	 * A previous import without any price is not usable as delta.
+	 */
+	@Test
+	void isDelta() {
+		final var context = new UpdateContext();
+		Assertions.assertFalse(context.isDelta());
+		context.getPreviousSnapshot().setDigest("digest");
+		Assertions.assertFalse(context.isDelta());
+		context.getPreviousSnapshot().put("linux/gra/monthly.postpaid/b2-1", 1, 1, new ProvInstancePrice());
+		Assertions.assertTrue(context.isDelta());
+	}
+
+	/**
+	 * The snapshot compares the exact cost and the attributes of a price, and is kept by a save.
+	 */
+	@Test
+	void snapshot(@TempDir final Path dir) throws IOException {
+		final var snapshot = new OvhPriceSnapshot();
+		snapshot.setDigest("digest");
+		final var price = new ProvInstancePrice();
+		price.setId(1);
+		snapshot.put("code", 0.1 + 0.2, 42, price);
+		final var file = dir.resolve("prices");
+		snapshot.save(file);
+		final var loaded = OvhPriceSnapshot.load(file);
+		Assertions.assertEquals("digest", loaded.getDigest());
+		Assertions.assertEquals(1, loaded.getId("code"));
+		Assertions.assertTrue(loaded.isUnchanged("code", 0.1 + 0.2, 42));
+		Assertions.assertFalse(loaded.isUnchanged("code", 0.3, 42));
+		Assertions.assertFalse(loaded.isUnchanged("code", 0.1 + 0.2, 43));
+
+		// A snapshot of the previous format is not usable
+		Files.writeString(file, "digest\ncode\t1\t1\n");
+		Assertions.assertEquals(0, OvhPriceSnapshot.load(file).size());
+		Assertions.assertNull(OvhPriceSnapshot.load(file).getDigest());
+	}
+
+	/**
+	 * Only the changed prices of a drifted catalog are loaded, with the same result as a full import.
+	 */
+	@Test
+	void installDelta(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		final var generator = new OvhPriceFeedGenerator();
+		generator.setDrift(0.2);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(120, getInstanceCosts().size());
+
+		generator.setVersion(1);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		final var statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+		statistics.setStatisticsEnabled(true);
+		statistics.clear();
+		try {
+			resetImportTask();
+			resource.install(false);
+			em.flush();
+			em.clear();
+			final var loaded = statistics.getEntityStatistics(ProvInstancePrice.class.getName()).getLoadCount();
+			Assertions.assertTrue(loaded > 0 && loaded < 60, "Loaded instance prices: " + loaded);
+		} finally {
+			statistics.setStatisticsEnabled(false);
+		}
+		final var delta = getInstanceCosts();
+
+		// A forced import merges all the prices
+		resetImportTask();
+		resource.install(true);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(delta, getInstanceCosts());
+	}
+
+	/**
+	 * The prices no more sold are removed, except the ones used by a quote.
+	 */
+	@Test
+	void installRetire(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		final var generator = new OvhPriceFeedGenerator();
+		generator.setFlavors(12);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(144, getInstanceCosts().size());
+
+		// A quote uses the last flavor
+		final var lookup = qiResource.lookup(subscription, builder().type("d2-4").os(VmOs.LINUX).location("gra").build());
+		final var ivo = new QuoteInstanceEditionVo();
+		ivo.setCpu(1d);
+		ivo.setRam(1);
+		ivo.setLocation("gra");
+		ivo.setPrice(lookup.getPrice().getId());
+		ivo.setName("server1");
+		ivo.setSubscription(subscription);
+		qiResource.create(ivo);
+		em.flush();
+		em.clear();
+
+		// The 3 last flavors are no more sold
+		generator.setFlavors(9);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(109, costs.size());
+		Assertions.assertTrue(costs.containsKey(lookup.getPrice().getCode()));
+		Assertions.assertFalse(costs.containsKey("linux/sbg/consumption/d2-4"));
+		Assertions.assertEquals(48, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+	}
+
+	/**
+	 * The prices filtered by the configuration are not retired, only the stale prices enabled by the filters are.
+	 */
+	@Test
+	void installRetireFiltered(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		final var generator = new OvhPriceFeedGenerator();
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(120, getInstanceCosts().size());
+		final var storages = em.createQuery("SELECT COUNT(id) FROM ProvStoragePrice", Long.class).getSingleResult();
+
+		// The last flavor is no more sold, only the Linux prices of a single region are imported
+		configuration.put(OvhPriceImport.CONF_REGIONS, "gra");
+		configuration.put(OvhPriceImport.CONF_OS, "LINUX");
+		generator.setFlavors(9);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(118, costs.size());
+		Assertions.assertFalse(costs.containsKey("linux/gra/consumption/b2-4"));
+		Assertions.assertTrue(costs.containsKey("windows/gra/consumption/b2-4"));
+		Assertions.assertTrue(costs.containsKey("linux/sbg/consumption/b2-4"));
+		Assertions.assertEquals(48, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+		Assertions.assertEquals(storages, em.createQuery("SELECT COUNT(id) FROM ProvStoragePrice", Long.class).getSingleResult());
+	}
+
+	/**
+	 * Only a bounded window of the previous prices is kept in memory, the evicted ones are still updated in place.
+	 */
+	@Test
+	void installLookupWindow() throws Exception {
+		configuration.put(OvhPriceImport.CONF_LOOKUP_WINDOW, "2");
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		final var generator = new OvhPriceFeedGenerator();
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(120, costs.size());
+
+		// All the prices are drifted
+		generator.setVersion(1);
+		generator.setDrift(1);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withBody(generator.generate())));
+		resetImportTask();
+		resource.install(true);
+		em.flush();
+		em.clear();
+		final var drifted = getInstanceCosts();
+		Assertions.assertEquals(costs.keySet(), drifted.keySet());
+		costs.forEach((code, cost) -> Assertions.assertEquals(cost * 1.1, drifted.get(code), 0.01, code));
+		Assertions.assertEquals(48, em.createQuery("SELECT COUNT(id) FROM ProvDatabasePrice", Long.class).getSingleResult());
+	}
+
+	/**
+	 * A gzip compressed catalog, encoded by the server or pre-compressed, is decompressed along the parsing.
+	 */
+	@Test
+	void installCompressed() throws Exception {
+		final var generator = new OvhPriceFeedGenerator();
+		final var compressed = new ByteArrayOutputStream();
+		try (var gzip = new GZIPOutputStream(compressed)) {
+			gzip.write(generator.generate().getBytes(StandardCharsets.UTF_8));
+		}
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).withHeader("Accept-Encoding", equalTo("gzip")).willReturn(
+				aResponse().withStatus(HttpStatus.SC_OK).withHeader("Content-Encoding", "gzip").withBody(compressed.toByteArray())));
+		httpServer.start();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(120, costs.size());
+		Assertions.assertEquals(compressed.size(), resource.getLastMetrics().get(OvhImportMetrics.DOWNLOAD).getBytes().get());
+
+		// Pre-compressed catalog with a drifted price
+		generator.setVersion(1);
+		generator.setDrift(1);
+		final var drifted = new ByteArrayOutputStream();
+		try (var gzip = new GZIPOutputStream(drifted)) {
+			gzip.write(generator.generate().getBytes(StandardCharsets.UTF_8));
+		}
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT + "/catalog/price.json.gz");
+		httpServer.stubFor(get(urlEqualTo("/catalog/price.json.gz"))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("Content-Type", "application/gzip").withBody(drifted.toByteArray())));
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var driftedCosts = getInstanceCosts();
+		Assertions.assertEquals(120, driftedCosts.size());
+		costs.forEach((code, cost) -> Assertions.assertEquals(cost * 1.1, driftedCosts.get(code), 0.01, code));
+	}
+
+	/**
+	 * Local price feeds are read without any HTTP server: a mirror directory, a class path resource or a memory source.
+	 */
+	@Test
+	void installLocalSource(@TempDir final Path mirror) throws Exception {
+		final var generator = new OvhPriceFeedGenerator();
+		try (var gzip = new GZIPOutputStream(Files.newOutputStream(mirror.resolve("price.json.gz")))) {
+			gzip.write(generator.generate().getBytes(StandardCharsets.UTF_8));
+		}
+		configuration.put(OvhPriceImport.CONF_API_PRICES, mirror.toUri().toString());
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var costs = getInstanceCosts();
+		Assertions.assertEquals(120, costs.size());
+		Assertions.assertEquals(Files.size(mirror.resolve("price.json.gz")), resource.getLastMetrics().get(OvhImportMetrics.DOWNLOAD).getBytes().get());
+
+		// Same feed from memory, not imported again
+		final var feed = generator.generate().getBytes(StandardCharsets.UTF_8);
+		resource.setCatalogSource((force, download) -> new ByteArrayInputStream(feed));
+		resetImportTask();
+		resource.install(false);
+		Assertions.assertEquals("unchanged", this.resource.getImportCatalogResource().getTask("service:prov:ovh").getPhase());
+
+		// Drifted feed from memory
+		generator.setVersion(1);
+		generator.setDrift(1);
+		final var drifted = generator.generate().getBytes(StandardCharsets.UTF_8);
+		resource.setCatalogSource((force, download) -> new ByteArrayInputStream(drifted));
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		final var driftedCosts = getInstanceCosts();
+		costs.forEach((code, cost) -> Assertions.assertEquals(cost * 1.1, driftedCosts.get(code), 0.01, code));
+
+		// Class path resource
+		resource.setCatalogSource(null);
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "classpath:mock-server/ovh/prices.json");
+		resetImportTask();
+		resource.install(false);
+		em.flush();
+		em.clear();
+		Assertions.assertEquals(1, em.createQuery("SELECT COUNT(id) FROM ProvInstancePrice WHERE code = 'linux/gra/monthly.postpaid/d2-4'",
+				Long.class).getSingleResult());
+	}
+
+	private Map<String, Double> getInstanceCosts() {
+		return em.createQuery("FROM ProvInstancePrice", ProvInstancePrice.class).getResultList().stream()
+				.collect(Collectors.toMap(ProvInstancePrice::getCode, ProvInstancePrice::getCost));
+	}
+
+	@Test
+	void toGlobalRegion() {
+		Assertions.assertEquals("gra", OvhAllPrices.toGlobalRegion("GRA7"));
+		Assertions.assertEquals("gra", OvhAllPrices.toGlobalRegion("gra"));
+		Assertions.assertEquals("rbx-trustedzone-a", OvhAllPrices.toGlobalRegion("RBX-TRUSTEDZONE-A"));
+	}
+
+	@Test
+	void shardByRegion() {
+		final var prices = new OvhAllPrices();
+		prices.setDigest("digest");
+		final var b2 = prices.addPlan(new OvhPlan());
+		final var database = prices.addPlan(new OvhPlan());
+		final var gra7 = prices.internRegion("GRA7");
+		final var gra = prices.internRegion("gra");
+		final var sbg = prices.internRegion("sbg");
+		prices.getInstances().add(b2, gra7, Map.of("linux.hourly", "1"));
+		prices.getInstances().add(b2, sbg, Map.of("linux.hourly", "2"));
+		prices.getDatabases().add(database, gra, Map.of("hourly", "3"));
+		prices.getVolumes().add(b2, sbg, Map.of());
+
+		final var shards = prices.shardByRegion();
+		Assertions.assertEquals(List.of("gra", "sbg"), List.copyOf(shards.keySet()));
+
+		// The datacenters of a region are in the same shard, with the dictionaries of the catalog
+		final var shard = shards.get("gra");
+		Assertions.assertEquals(2, shard.size());
+		Assertions.assertEquals("GRA7", shard.getRegion(shard.getInstances().getRegion(0)));
+		Assertions.assertEquals(1d, shard.getInstances().getCost(OvhPriceKey.LINUX_HOURLY, 0));
+		Assertions.assertSame(prices.getPlan(database), shard.getPlan(shard.getDatabases().getPlan(0)));
+		Assertions.assertEquals(3d, shard.getDatabases().getCost(OvhPriceKey.HOURLY, 0));
+		Assertions.assertEquals("digest", shard.getDigest());
+		Assertions.assertEquals(2, shards.get("sbg").size());
+		Assertions.assertEquals(4, prices.size());
+	}
+
+	/**
+	 * A not modified remote catalog is not imported again, unless forced.
+	 */
+	@Test
+	void installNotModified(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		mockServer();
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("ETag", "\"v1\"")
+				.withBody(IOUtils.toString(new ClassPathResource("mock-server/ovh/prices.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/price.json")).withHeader("If-None-Match", equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+		resource.install(false);
+		checkImportStatus();
+
+		// Not modified, nothing is imported
+		resetImportTask();
+		resource.install(false);
+		final var status = this.resource.getImportCatalogResource().getTask("service:prov:ovh");
+		Assertions.assertEquals("unchanged", status.getPhase());
+		Assertions.assertEquals(3, status.getDone());
+
+		// Not modified but forced, the local snapshot is imported
+		resetImportTask();
+		resource.install(true);
+		checkImportStatus();
+	}
+
+	/**
+	 * A not modified remote catalog is imported again when its local snapshot is not the last import of the node.
+	 */
+	@Test
+	void installNotModifiedNotImported(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		mockServer();
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withHeader("ETag", "\"v1\"")
+				.withBody(IOUtils.toString(new ClassPathResource("mock-server/ovh/prices.json").getInputStream(), StandardCharsets.UTF_8))));
+		httpServer.stubFor(get(urlEqualTo("/price.json")).withHeader("If-None-Match", equalTo("\"v1\""))
+				.willReturn(aResponse().withStatus(HttpStatus.SC_NOT_MODIFIED)));
+		resource.install(false);
+		checkImportStatus();
+		final var digest = configuration.get("service:prov:ovh" + OvhPriceImport.CONF_DIGEST);
+
+		// The digest of the node is lost, such as after a reset of the database
+		configuration.delete("service:prov:ovh" + OvhPriceImport.CONF_DIGEST);
+		resetImportTask();
+		resource.install(false);
+		checkImportStatus();
+		Assertions.assertEquals(digest, configuration.get("service:prov:ovh" + OvhPriceImport.CONF_DIGEST));
+	}
+
+	/**
+	 * An unavailable feed fails the import, the previous catalog is kept.
+	 */
+	@Test
+	void installUnavailable(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_SERVICE_UNAVAILABLE)));
+		httpServer.start();
+		final var e = Assertions.assertThrows(IOException.class, () -> resource.install(false));
+		Assertions.assertTrue(e.getMessage().endsWith("/price.json, status 503"), e.getMessage());
+		Assertions.assertNull(configuration.get("service:prov:ovh" + OvhPriceImport.CONF_DIGEST));
+	}
+
+	/**
+	 * A stalled feed fails the import once the configured timeout is reached.
+	 */
+	@Test
+	void installTimeout(@TempDir final Path cache) throws Exception {
+		configuration.put(OvhPriceImport.CONF_CACHE_DIR, cache.toString());
+		configuration.put(OvhPriceImport.CONF_API_PRICES, "http://localhost:" + MOCK_PORT);
+		configuration.put(OvhPriceImport.CONF_FETCH_TIMEOUT, "1");
+		httpServer.stubFor(get(urlEqualTo("/price.json")).willReturn(aResponse().withStatus(HttpStatus.SC_OK).withFixedDelay(3000).withBody("[]")));
+		httpServer.start();
+		Assertions.assertThrows(HttpTimeoutException.class, () -> resource.install(false));
+		Assertions.assertNull(configuration.get("service:prov:ovh" + OvhPriceImport.CONF_DIGEST));
+	}
+
 	private void checkImportStatus() {
 		final var status = this.resource.getImportCatalogResource().getTask("service:prov:ovh");
 		Assertions.assertEquals(7, status.getDone());
-		Assertions.assertEquals(6, status.getWorkload());
+		Assertions.assertEquals(7, status.getWorkload());
 		Assertions.assertEquals("support", status.getPhase());
 		Assertions.assertEquals(DEFAULT_USER, status.getAuthor());
 		Assertions.assertTrue(status.getNbPrices() >= 18);//18
@@ -399,6 +1106,110 @@ class OvhPriceImportTest extends AbstractServerTest {
 		Assertions.assertTrue(quote.getCost().getMin() >= 1186.21);
 	}
 
+	@Test
+	void readPrices() throws IOException {
+		try (var input = new ClassPathResource("mock-server/ovh/prices.json").getInputStream()) {
+			final var prices = resource.readPrices(input);
+			Assertions.assertEquals(188, prices.getInstances().size());
+			Assertions.assertEquals(1215, prices.getDatabases().size());
+			Assertions.assertEquals(14, prices.getStorage().size());
+			Assertions.assertEquals(31, prices.getArchive().size());
+			Assertions.assertEquals(38, prices.getVolumes().size());
+			Assertions.assertEquals(12, prices.getSnapshots().size());
+
+			final var instances = prices.getInstances();
+			final var plan = prices.getPlan(instances.getPlan(0));
+			Assertions.assertEquals("b2-7.consumption", plan.getPlanCode());
+			Assertions.assertEquals("bhs", prices.getRegion(instances.getRegion(0)));
+			Assertions.assertEquals(0.0813d, instances.getCost(OvhPriceKey.LINUX_HOURLY, 0), DELTA);
+			Assertions.assertEquals(65.6d, instances.getCost(OvhPriceKey.WINDOWS_MONTHLY, 0), DELTA);
+			Assertions.assertTrue(Double.isNaN(instances.getCost(OvhPriceKey.HOURLY, 0)));
+			Assertions.assertEquals(2d, plan.getCpu(), DELTA);
+			Assertions.assertEquals(7 * 1024d, plan.getRam(), DELTA);
+
+			// Plans and regions are shared by their regional prices
+			Assertions.assertEquals(instances.getPlan(0), instances.getPlan(1));
+			Assertions.assertEquals(instances.getRegion(0), instances.getRegion(9));
+		}
+	}
+
+	@Test
+	void readPricesGpu() throws IOException {
+		try (var input = new ClassPathResource("mock-server/ovh/prices.json").getInputStream()) {
+			final var prices = resource.readPrices(input);
+			final var t1 = prices.getPlans().stream().filter(i -> i.getName().equals("t1-45")).findFirst().get();
+			Assertions.assertEquals("Tesla V100 16\u00a0GB", t1.getGpu());
+			Assertions.assertEquals("400\u00a0GB SSD", t1.getStorage());
+			Assertions.assertEquals(8d, t1.getCpu(), DELTA);
+			Assertions.assertEquals(1.97d, t1.getPrice(), DELTA);
+			final var t2 = prices.getPlans().stream().filter(i -> i.getName().equals("t2-45")).findFirst().get();
+			Assertions.assertEquals("400\u00a0GB SSD", t2.getStorage());
+			Assertions.assertEquals(14d, t2.getCpu(), DELTA);
+		}
+	}
+
+	@Test
+	void priceColumns() {
+		final var columns = new OvhPriceColumns();
+		for (var i = 0; i < 100; i++) {
+			Assertions.assertEquals(i, columns.add(1, 2, Map.of("linux.hourly", "0.0813", "linux.monthly", "51.30", "windows.hourly", "Included", "other", "1")));
+		}
+		Assertions.assertEquals(100, columns.size());
+		Assertions.assertEquals(1, columns.getPlan(99));
+		Assertions.assertEquals(2, columns.getRegion(99));
+		Assertions.assertEquals(0.0813d, columns.getCost(OvhPriceKey.LINUX_HOURLY, 99), DELTA);
+		Assertions.assertEquals(51.3d, columns.getCost(OvhPriceKey.LINUX_MONTHLY, 99), DELTA);
+		Assertions.assertTrue(Double.isNaN(columns.getCost(OvhPriceKey.WINDOWS_HOURLY, 99)));
+		Assertions.assertTrue(Double.isNaN(columns.getCost(OvhPriceKey.HOURLY, 99)));
+		Assertions.assertEquals("linux.hourly", OvhPriceKey.LINUX_HOURLY.getKey());
+	}
+
+	@Test
+	void classify() throws IOException {
+		final var classifier = OvhPlanClassifier.load(new ObjectMapper(), OvhPlanClassifier.FAMILIES);
+		Assertions.assertEquals(OvhPlanCategory.INSTANCE, classifier.classify("b2-7.consumption").getCategory());
+		Assertions.assertEquals(OvhPlanCategory.DATABASE, classifier.classify("databases.mysql-business-db1-7.hour.consumption").getCategory());
+		Assertions.assertEquals(OvhPlanCategory.ARCHIVE, classifier.classify("bandwidth_archive_in.consumption").getCategory());
+		Assertions.assertEquals(OvhPlanCategory.VOLUME, classifier.classify("volume.snapshot.consumption").getCategory());
+		Assertions.assertEquals(OvhPlanCategory.SNAPSHOT, classifier.classify("snapshot.consumption").getCategory());
+		Assertions.assertNull(classifier.classify("bandwidth_instance_in.consumption"));
+		Assertions.assertNull(classifier.classify("ai-notebook.ai1-1-gpu.minute.consumption"));
+		Assertions.assertNull(classifier.classify("r2-15.consumption"));
+		Assertions.assertNull(classifier.classify(""));
+	}
+
+	@Test
+	void readPricesDigest() throws IOException {
+		final var compact = resource.readPrices(new ByteArrayInputStream(
+				"[{\"GRA\":{\"hourly\":\"1\"},\"term\":\"hourly\",\"planCode\":\"snapshot.consumption\",\"attr-1\":\"0.01\"}]"
+						.getBytes(StandardCharsets.UTF_8)));
+		final var formatted = resource.readPrices(new ByteArrayInputStream(
+				"[ {\n \"GRA\": { \"hourly\": \"1\" },\n \"term\": \"hourly\", \"planCode\": \"snapshot.consumption\", \"attr-1\": \"0.01\" } ]"
+						.getBytes(StandardCharsets.UTF_8)));
+		final var changed = resource.readPrices(new ByteArrayInputStream(
+				"[{\"GRA\":{\"hourly\":\"2\"},\"term\":\"hourly\",\"planCode\":\"snapshot.consumption\",\"attr-1\":\"0.01\"}]"
+						.getBytes(StandardCharsets.UTF_8)));
+		Assertions.assertEquals(1, compact.getSnapshots().size());
+		Assertions.assertEquals(compact.getDigest(), formatted.getDigest());
+		Assertions.assertNotEquals(compact.getDigest(), changed.getDigest());
+	}
+
+	@Test
+	void readDigest() throws IOException {
+		final var feed = "[{\"GRA\":{\"hourly\":\"1\",\"tiers\":{\"a\":[1,2]}},\"term\":\"hourly\",\"tags\":[\"a\",{\"b\":1}],"
+				+ "\"planCode\":\"snapshot.consumption\",\"attr-1\":\"0.01\"}]";
+		final var prices = resource.readPrices(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)));
+		final var digest = resource.readDigest(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), new OvhImportMetrics());
+		Assertions.assertEquals(prices.getDigest(), digest);
+		Assertions.assertNotEquals(digest, resource.readDigest(
+				new ByteArrayInputStream(feed.replace("[1,2]", "[1,3]").getBytes(StandardCharsets.UTF_8)), new OvhImportMetrics()));
+	}
+
+	@Test
+	void readPricesEmpty() throws IOException {
+		Assertions.assertTrue(resource.readPrices(InputStream.nullInputStream()).getInstances().isEmpty());
+	}
+
 	/**
 	 * Install and check
 	 */